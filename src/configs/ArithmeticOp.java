@@ -0,0 +1,97 @@
+package configs;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import graph.Agent;
+
+/**
+ * The pure arithmetic operations of the built-in agents.
+ * Lets the compilers work on the operation of an agent instead of calling the agent itself.
+ */
+public enum ArithmeticOp {
+    PLUS("plus", 2), // PlusAgent: x + y
+    MUL("mul", 2), // MulAgent: x * y
+    INC("inc", 1); // IncAgent: x + 1
+
+    private final String methodName; // The static method implementing the operation
+    private final int arity; // The number of inputs of the operation
+    private final MethodHandle handle; // Handle to the static method, (double[, double])double
+
+    ArithmeticOp(String methodName, int arity) {
+        this.methodName = methodName;
+        this.arity = arity;
+        try {
+            MethodType type = arity == 1
+                ? MethodType.methodType(double.class, double.class)
+                : MethodType.methodType(double.class, double.class, double.class);
+            this.handle = MethodHandles.lookup().findStatic(ArithmeticOp.class, methodName, type);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Error looking up arithmetic operation " + methodName, e);
+        }
+    }
+
+    // Get the operation of an agent, or null if the agent is not a known pure arithmetic agent
+    public static ArithmeticOp of(Agent agent) {
+        if (agent instanceof PlusAgent) {
+            return PLUS;
+        } else if (agent instanceof MulAgent) {
+            return MUL;
+        } else if (agent instanceof IncAgent) {
+            return INC;
+        }
+        return null; // BinOpAgent wraps an opaque BinaryOperator, so it cannot be compiled
+    }
+
+    // Apply the operation (y is ignored by unary operations)
+    public double apply(double x, double y) {
+        switch (this) {
+            case PLUS: return x + y;
+            case MUL: return x * y;
+            default: return x + 1;
+        }
+    }
+
+    // Apply the operation to the rows [from, to) of input columns (y is ignored by unary operations).
+    // Each loop handles a single operation, so the JIT can vectorize it.
+    public void applyColumns(double[] x, double[] y, double[] out, int from, int to) {
+        switch (this) {
+            case PLUS:
+                for (int i = from; i < to; i++) {
+                    out[i] = x[i] + y[i];
+                }
+                break;
+            case MUL:
+                for (int i = from; i < to; i++) {
+                    out[i] = x[i] * y[i];
+                }
+                break;
+            default:
+                for (int i = from; i < to; i++) {
+                    out[i] = x[i] + 1;
+                }
+                break;
+        }
+    }
+
+    // Get the number of inputs of the operation
+    public int getArity() {
+        return arity;
+    }
+
+    // Get a method handle to the operation, (double)double for unary and (double,double)double for binary operations
+    public MethodHandle getHandle() {
+        return handle;
+    }
+
+    // Get the name of the method implementing the operation
+    public String getMethodName() {
+        return methodName;
+    }
+
+    // The operations themselves, as static methods the JIT can inline into a compiled handle tree
+    private static double plus(double x, double y) { return x + y; }
+    private static double mul(double x, double y) { return x * y; }
+    private static double inc(double x) { return x + 1; }
+}
@@ -0,0 +1,175 @@
+package configs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import graph.Agent;
+
+/**
+ * Evaluates a configuration over whole columns of input values at once.
+ * Every source topic gets a double[] column, and every agent runs as a column kernel in
+ * topological order, with no Message, queue or thread involved. The rows are processed in
+ * blocks so the columns of one block stay in cache while all the agents run over it.
+ * Only the pure arithmetic agents have kernels (see ArithmeticOp).
+ */
+public class BatchEvaluator {
+    private static final int BLOCK_ROWS = 4096; // Rows evaluated by all the agents before moving to the next block
+
+    private final List<String> sources = new ArrayList<>(); // The source topics, in column order
+    private final List<String> derived = new ArrayList<>(); // The derived topics, in the order they are computed
+    private final ArithmeticOp[] ops; // The operation of each step
+    private final int[][] inputs; // The input columns of each step
+    private final int[] outputs; // The output column of each step
+
+    // Create a batch evaluator; agents, subs and pubs are parallel lists (one entry per agent).
+    public BatchEvaluator(List<Agent> agents, List<String[]> subs, List<String[]> pubs) {
+        if (agents == null || subs == null || pubs == null || agents.size() != subs.size() || agents.size() != pubs.size()) {
+            throw new IllegalArgumentException("Agents, subs and pubs must be non-null lists of the same size");
+        }
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < agents.size(); i++) {
+            ArithmeticOp op = ArithmeticOp.of(agents.get(i));
+            if (op == null || subs.get(i).length != op.getArity() || pubs.get(i).length != 1) {
+                throw new IllegalArgumentException("Agent " + agents.get(i).getName() + " has no batch kernel");
+            }
+            all.add(i);
+        }
+        List<Integer> order = SubgraphCompiler.topologicalOrder(all, subs, pubs);
+        if (order == null) {
+            throw new IllegalArgumentException("Cannot batch-evaluate a graph with a cycle");
+        }
+
+        for (int i : order) {
+            String topic = pubs.get(i)[0].trim().toUpperCase();
+            if (derived.contains(topic)) {
+                throw new IllegalArgumentException("Topic " + topic + " is published by more than one agent");
+            }
+            derived.add(topic);
+        }
+        for (int i : order) {
+            for (String sub : subs.get(i)) {
+                String topic = sub.trim().toUpperCase();
+                if (!derived.contains(topic) && !sources.contains(topic)) {
+                    sources.add(topic);
+                }
+            }
+        }
+
+        ops = new ArithmeticOp[order.size()];
+        inputs = new int[order.size()][];
+        outputs = new int[order.size()];
+        for (int k = 0; k < order.size(); k++) {
+            int i = order.get(k);
+            ops[k] = ArithmeticOp.of(agents.get(i));
+            inputs[k] = new int[subs.get(i).length];
+            for (int j = 0; j < inputs[k].length; j++) {
+                inputs[k][j] = columnOf(subs.get(i)[j].trim().toUpperCase());
+            }
+            outputs[k] = sources.size() + k;
+        }
+    }
+
+    // Get the topic of a column index (sources first, then derived topics)
+    private String columnTopic(int column) {
+        return column < sources.size() ? sources.get(column) : derived.get(column - sources.size());
+    }
+
+    // Get the column index of a topic (sources first, then derived topics)
+    private int columnOf(String topic) {
+        int source = sources.indexOf(topic);
+        return source >= 0 ? source : sources.size() + derived.indexOf(topic);
+    }
+
+    // Evaluate the graph over columns of source values (by topic), returns the column of every derived topic.
+    // Missing source topics read as 0, like an agent that has not received that input yet; unknown topics are rejected.
+    public Map<String, double[]> evaluate(Map<String, double[]> sourceColumns) {
+        if (sourceColumns == null) {
+            throw new IllegalArgumentException("Source columns cannot be null");
+        }
+        int rows = -1;
+        for (Map.Entry<String, double[]> entry : sourceColumns.entrySet()) {
+            if (entry.getKey() == null || !sources.contains(entry.getKey().trim().toUpperCase())) {
+                throw new IllegalArgumentException("Topic " + entry.getKey() + " is not a source topic of the graph, expected one of " + sources);
+            }
+            if (entry.getValue() == null) {
+                throw new IllegalArgumentException("Column of topic " + entry.getKey() + " cannot be null");
+            }
+            if (rows >= 0 && entry.getValue().length != rows) {
+                throw new IllegalArgumentException("All columns must have the same length, topic " + entry.getKey()
+                    + " has " + entry.getValue().length + " rows instead of " + rows);
+            }
+            rows = entry.getValue().length;
+        }
+        rows = Math.max(rows, 0);
+
+        double[][] columns = new double[sources.size() + derived.size()][];
+        Map<String, double[]> normalized = new LinkedHashMap<>();
+        for (Map.Entry<String, double[]> entry : sourceColumns.entrySet()) {
+            normalized.put(entry.getKey().trim().toUpperCase(), entry.getValue());
+        }
+        for (int c = 0; c < sources.size(); c++) {
+            double[] column = normalized.get(sources.get(c));
+            columns[c] = column != null ? column : new double[rows];
+        }
+        for (int c = sources.size(); c < columns.length; c++) {
+            columns[c] = new double[rows];
+        }
+
+        evaluate(columns, 0, rows);
+
+        Map<String, double[]> result = new LinkedHashMap<>();
+        for (int k = 0; k < derived.size(); k++) {
+            result.put(derived.get(k), columns[sources.size() + k]);
+        }
+        return result;
+    }
+
+    // Evaluate the rows [from, to) of columns laid out like getColumnTopics (sources first, then derived topics).
+    public void evaluate(double[][] columns, int from, int to) {
+        if (columns == null || columns.length != sources.size() + derived.size()) {
+            throw new IllegalArgumentException("Expected " + (sources.size() + derived.size()) + " columns, got "
+                + (columns == null ? "null" : columns.length));
+        }
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("Invalid row range [" + from + ", " + to + ")");
+        }
+        for (int c = 0; c < columns.length; c++) {
+            if (columns[c] == null || columns[c].length < to) {
+                throw new IllegalArgumentException("Column " + c + " (" + columnTopic(c) + ") has "
+                    + (columns[c] == null ? "no" : columns[c].length) + " rows, needs at least " + to);
+            }
+        }
+        for (int start = from; start < to; start += BLOCK_ROWS) {
+            int end = Math.min(start + BLOCK_ROWS, to);
+            for (int k = 0; k < ops.length; k++) {
+                double[] x = columns[inputs[k][0]];
+                double[] y = inputs[k].length > 1 ? columns[inputs[k][1]] : null;
+                ops[k].applyColumns(x, y, columns[outputs[k]], start, end);
+            }
+        }
+    }
+
+    // Get the topic of every column (sources first, then derived topics)
+    public List<String> getColumnTopics() {
+        List<String> topics = new ArrayList<>(sources);
+        topics.addAll(derived);
+        return topics;
+    }
+
+    // Get the source topics
+    public List<String> getSourceTopics() {
+        return new ArrayList<>(sources);
+    }
+
+    // Get the derived topics
+    public List<String> getDerivedTopics() {
+        return new ArrayList<>(derived);
+    }
+
+    // Get the number of agent evaluations done per row
+    public int getAgentCount() {
+        return ops.length;
+    }
+}
@@ -0,0 +1,101 @@
+package configs;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compiled function of a graph of arithmetic agents, and the layout of its slots.
+ * A compiled graph is immutable and holds no values: the topic values live in a double[]
+ * of slots passed to each call, so any number of threads can evaluate it at once, each
+ * with its own EvaluationContext.
+ */
+public final class CompiledGraph {
+    private final String[] slotTopics; // The topic of each slot
+    private final Map<String, Integer> slotOf; // The slot of each topic
+    private final int sourceCount; // Slots [0, sourceCount) are read, the others are written
+    private final MethodHandle function; // The compiled function, (double[])void
+    private final boolean[][] dependsOn; // For every derived slot, the source slots it depends on
+
+    // Create a compiled graph; the source topics come first in slotTopics, then the derived topics in the order they are written.
+    CompiledGraph(String[] slotTopics, int sourceCount, MethodHandle function, boolean[][] dependsOn) {
+        this.slotTopics = slotTopics.clone();
+        this.sourceCount = sourceCount;
+        this.function = function;
+        this.dependsOn = dependsOn;
+        Map<String, Integer> slots = new HashMap<>();
+        for (int i = 0; i < slotTopics.length; i++) {
+            slots.put(slotTopics[i], i);
+        }
+        this.slotOf = Collections.unmodifiableMap(slots);
+    }
+
+    // Run the function over a slots array laid out like getSlotTopics
+    public void evaluate(double[] values) {
+        if (values.length != slotTopics.length) {
+            throw new IllegalArgumentException("Expected " + slotTopics.length + " slots, got " + values.length);
+        }
+        try {
+            function.invokeExact(values);
+        } catch (Throwable t) {
+            throw new RuntimeException("Error evaluating compiled graph", t);
+        }
+    }
+
+    // Create a new context holding its own topic values, all starting at 0
+    public EvaluationContext newContext() {
+        return new EvaluationContext(this);
+    }
+
+    // Get the slot of a topic (case-insensitive), or -1 if the topic is not part of the graph
+    public int slotOf(String topic) {
+        Integer slot = topic != null ? slotOf.get(topic.trim().toUpperCase()) : null;
+        return slot != null ? slot : -1;
+    }
+
+    // Check if a slot is read (true) or written (false) by the function
+    public boolean isSource(int slot) {
+        return slot < sourceCount;
+    }
+
+    // Check if a derived slot depends on a source slot
+    public boolean dependsOn(int derivedSlot, int sourceSlot) {
+        return dependsOn[derivedSlot - sourceCount][sourceSlot];
+    }
+
+    // Get the topic of every slot
+    public String[] getSlotTopics() {
+        return slotTopics.clone();
+    }
+
+    // Get the topics read by the function
+    public List<String> getSourceTopics() {
+        List<String> topics = new ArrayList<>();
+        for (int i = 0; i < sourceCount; i++) {
+            topics.add(slotTopics[i]);
+        }
+        return topics;
+    }
+
+    // Get the topics written by the function, in the order they are written
+    public List<String> getDerivedTopics() {
+        List<String> topics = new ArrayList<>();
+        for (int i = sourceCount; i < slotTopics.length; i++) {
+            topics.add(slotTopics[i]);
+        }
+        return topics;
+    }
+
+    // Get the number of slots
+    public int getSlotCount() {
+        return slotTopics.length;
+    }
+
+    // Get the number of source slots
+    public int getSourceCount() {
+        return sourceCount;
+    }
+}
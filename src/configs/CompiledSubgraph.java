@@ -0,0 +1,109 @@
+package configs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import graph.Agent;
+import graph.Message;
+import graph.Topic;
+import graph.TopicManagerSingleton;
+
+/**
+ * An agent standing in for a compiled subgraph of arithmetic agents.
+ * It subscribes to the source topics of the subgraph, and on every input runs the compiled
+ * function once over its own context, then publishes the derived topics so readers still see them.
+ * Like the agents it replaces, the slots start at 0, so a derived topic is published as soon as
+ * one of the sources it depends on changes, and not while one of them is NaN.
+ */
+public class CompiledSubgraph implements Agent {
+    private final String name; // The name of the agent
+    private final CompiledGraph graph; // The compiled function of the subgraph
+    private final List<Agent> replaced; // The agents the function replaces, in topological order
+    private final double[] slots; // The current value of every topic of the subgraph
+    private final Topic[] sourceTopics; // The topics of the source slots
+    private final Topic[] derivedTopics; // The topics of the derived slots
+
+    // Create a compiled subgraph and subscribe it to its source topics.
+    public CompiledSubgraph(String name, CompiledGraph graph, List<Agent> replaced) {
+        if (name == null || graph == null || replaced == null) {
+            throw new IllegalArgumentException("Compiled subgraph arguments cannot be null");
+        }
+        this.name = name;
+        this.graph = graph;
+        this.replaced = new ArrayList<>(replaced);
+        this.slots = new double[graph.getSlotCount()];
+        String[] topics = graph.getSlotTopics();
+        this.sourceTopics = new Topic[graph.getSourceCount()];
+        this.derivedTopics = new Topic[topics.length - sourceTopics.length];
+        for (int i = 0; i < derivedTopics.length; i++) {
+            derivedTopics[i] = TopicManagerSingleton.get().getTopic(topics[sourceTopics.length + i]);
+            derivedTopics[i].addPublisher(this);
+        }
+        for (int i = 0; i < sourceTopics.length; i++) {
+            sourceTopics[i] = TopicManagerSingleton.get().getTopic(topics[i]);
+            sourceTopics[i].subscribe(this);
+        }
+    }
+
+    // Called when a message is received on a source topic: recompute the subgraph and publish the derived topics that depend on it
+    @Override
+    public synchronized void callback(String topic, Message msg) {
+        int slot = graph.slotOf(topic);
+        if (slot < 0 || !graph.isSource(slot)) {
+            return;
+        }
+        slots[slot] = msg.asDouble; // A NaN is kept too, the agents store it and stop publishing
+        graph.evaluate(slots);
+        for (int i = 0; i < derivedTopics.length; i++) {
+            int derived = sourceTopics.length + i;
+            if (graph.dependsOn(derived, slot) && !Double.isNaN(slots[derived]) && !Double.isInfinite(slots[derived])) { // A message cannot hold these
+                derivedTopics[i].publish(new Message(slots[derived]));
+            }
+        }
+    }
+
+    // Get the compiled function of the subgraph
+    public CompiledGraph getCompiledGraph() {
+        return graph;
+    }
+
+    // Get the agents replaced by the function
+    public List<Agent> getReplacedAgents() {
+        return Collections.unmodifiableList(replaced);
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    // Reset the value of every slot
+    @Override
+    public synchronized void reset() {
+        Arrays.fill(slots, 0);
+    }
+
+    // Close the agent
+    @Override
+    public void close() {
+        for (Topic topic : sourceTopics) {
+            topic.unsubscribe(this);
+        }
+        for (Agent agent : replaced) {
+            agent.close();
+        }
+    }
+
+    // Get the string representation of the agent
+    @Override
+    public String toString() {
+        List<String> names = new ArrayList<>();
+        for (Agent agent : replaced) {
+            names.add(agent.getName());
+        }
+        return name + names;
+    }
+}
@@ -0,0 +1,106 @@
+package configs;
+
+import graph.Agent;
+import graph.MailboxAgent;
+import graph.Message;
+import graph.TimingWheel;
+import graph.TopicManagerSingleton;
+
+/**
+ * An agent that publishes every value of its first input topic again after a delay.
+ * The value received on its second input topic sets the delay in milliseconds (0 by default).
+ * The delays run on the shared timing wheel, so any number of pending values cost no thread.
+ * When a delay ends the wheel thread only hands the value to a mailbox, which publishes the
+ * values in order on the wheel's hand-off pool, so a slow subscriber cannot delay the other timers.
+ */
+public class DelayAgent implements Agent {
+    private final String name; // The name of the agent
+    private final String[] subs; // The input topics (subscribers)
+    private final String[] pubs; // The output topics (publishers)
+    private volatile long delayMillis = 0; // The current delay
+    private volatile boolean closed = false; // Whether the agent was closed (pending values are dropped)
+    private final MailboxAgent outbox = new MailboxAgent(new Output(), TimingWheel.handOff()); // Publishes the delayed values off the wheel thread
+
+    // Create a DelayAgent.
+    public DelayAgent(String name, String[] subs, String[] pubs) {
+        this.name = name;
+        this.subs = subs;
+        this.pubs = pubs;
+        for (String sub : subs) {
+            TopicManagerSingleton.get().getTopic(sub).subscribe(this);
+        }
+        for (String pub : pubs) {
+            TopicManagerSingleton.get().getTopic(pub).addPublisher(this);
+        }
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    // Reset the delay
+    @Override
+    public void reset() {
+        delayMillis = 0;
+    }
+
+    // Called when a message is received on a subscribed topic: set the delay, or delay the value.
+    @Override
+    public void callback(String topic, Message msg) {
+        if (subs.length > 1 && subs[1].equals(topic)) {
+            if (!Double.isNaN(msg.asDouble)) {
+                delayMillis = Math.max(0, (long) msg.asDouble);
+            }
+        } else if (subs[0].equals(topic)) {
+            String text = msg.asText;
+            long key = msg.key;
+            TimingWheel.shared().schedule(() -> {
+                if (!closed) {
+                    outbox.callback(pubs[0], new Message(text, key));
+                }
+            }, delayMillis);
+        }
+    }
+
+    // Close the agent
+    @Override
+    public void close() {
+        closed = true;
+        outbox.close();
+        for (String sub : subs) {
+            TopicManagerSingleton.get().getTopic(sub).unsubscribe(this);
+        }
+    }
+
+    // Get the output topics
+    public String[] getPubs() { return pubs; }
+    // Get the input topics
+    public String[] getSubs() { return subs; }
+
+    // Publishes the values handed to the outbox, on the hand-off pool
+    private final class Output implements Agent {
+        // Called by the outbox for each delayed value
+        @Override
+        public void callback(String topic, Message msg) {
+            TopicManagerSingleton.get().getTopic(topic).publish(msg);
+        }
+
+        // Get the name of the agent
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        // Nothing to reset
+        @Override
+        public void reset() {
+        }
+
+        // Nothing to close
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package configs;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The topic values of one evaluation of a compiled graph.
+ * Every request gets its own context, so evaluations of the same graph never see each
+ * other's values and need no locking. A context is not meant to be shared between threads.
+ */
+public final class EvaluationContext {
+    private final CompiledGraph graph; // The graph evaluated in this context
+    private final double[] values; // The value of every slot of the graph
+
+    // Create a context for a compiled graph (see CompiledGraph.newContext)
+    EvaluationContext(CompiledGraph graph) {
+        this.graph = graph;
+        this.values = new double[graph.getSlotCount()];
+    }
+
+    // Set the value of a source topic
+    public EvaluationContext set(String topic, double value) {
+        int slot = graph.slotOf(topic);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Topic is not part of the graph: " + topic);
+        }
+        if (!graph.isSource(slot)) {
+            throw new IllegalArgumentException("Topic is computed by the graph and cannot be set: " + topic);
+        }
+        values[slot] = value;
+        return this;
+    }
+
+    // Compute every derived topic from the current source values
+    public EvaluationContext evaluate() {
+        graph.evaluate(values);
+        return this;
+    }
+
+    // Get the value of a topic
+    public double get(String topic) {
+        int slot = graph.slotOf(topic);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Topic is not part of the graph: " + topic);
+        }
+        return values[slot];
+    }
+
+    // Get the value of every topic, by topic name
+    public Map<String, Double> getValues() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        String[] topics = graph.getSlotTopics();
+        for (int i = 0; i < topics.length; i++) {
+            result.put(topics[i], values[i]);
+        }
+        return result;
+    }
+
+    // Set every value back to 0, so the context can be reused for another evaluation
+    public void reset() {
+        Arrays.fill(values, 0);
+    }
+}
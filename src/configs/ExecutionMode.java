@@ -0,0 +1,30 @@
+package configs;
+
+/**
+ * The ways a loaded configuration can deliver messages to its agents.
+ */
+public enum ExecutionMode {
+    PARALLEL, // Every agent runs on its own ParallelAgent thread
+    VIRTUAL, // Every agent runs on its own ParallelAgent virtual thread
+    ACTOR, // Every agent owns a mailbox and is scheduled on a shared work-stealing pool
+    WAVE, // Every publish runs as one topological wave through the agents
+    LAZY, // Agents only run when one of their output topics is read
+    PLANNED, // Linear agent chains are fused, and each unit runs inline or asynchronously depending on its cost
+    COMPILED, // Subgraphs of arithmetic agents run as one compiled function, the other agents as in PARALLEL
+    PARTITIONED, // The graph is cut into partitions with few edges between them, each running on its own thread
+    PRIORITY, // Agents run on a shared pool with separate queues per priority class, high priority first
+    KEYED; // Arithmetic agents keep their state per message key, with the keys spread over shard threads
+
+    // Parse an execution mode from a string (case-insensitive).
+    public static ExecutionMode fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Execution mode cannot be null or empty");
+        }
+        for (ExecutionMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown execution mode: " + value);
+    }
+}
@@ -0,0 +1,125 @@
+package configs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Plans how the agents of a graph are scheduled.
+ * Runs of single-input, single-output agents connected through topics that nobody else
+ * subscribes to are fused into one scheduled unit (a fused agent has a single output too, so
+ * a unit never fans out in the middle or at its tail): only the head of the run is scheduled,
+ * and the rest run inline on the head's thread. Each unit head is then wrapped in an
+ * AdaptiveAgent, which decides from the measured callback cost whether it runs inline on
+ * the publisher's thread or behind an asynchronous boundary.
+ */
+public class ExecutionPlanner {
+    private static final Logger LOGGER = Logger.getLogger(ExecutionPlanner.class.getName());
+
+    private final Map<String, List<String>> units = new LinkedHashMap<>(); // Agents of each unit (in order), by head agent name
+    private final Map<String, String> headOf = new HashMap<>(); // The unit head of each agent
+
+    // Plan the units of a graph.
+    public ExecutionPlanner(Graph graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+
+        Map<Node, List<Node>> predecessors = new HashMap<>(); // Incoming edges of each node
+        for (Node node : graph) {
+            predecessors.computeIfAbsent(node, n -> new ArrayList<>());
+            for (Node edge : node.getEdges()) {
+                predecessors.computeIfAbsent(edge, n -> new ArrayList<>()).add(node);
+            }
+        }
+
+        // An agent with a single output is fused into its upstream agent when it is the only
+        // subscriber of that agent's only output, and that output is its only input
+        Map<Node, Node> fusedInto = new HashMap<>(); // Agent -> the agent it runs inline after
+        for (Node agent : graph) {
+            if (!agent.isAgent()) {
+                continue;
+            }
+            List<Node> inputs = predecessors.get(agent);
+            if (inputs.size() != 1 || agent.getEdgeCount() != 1) {
+                continue;
+            }
+            Node topic = inputs.get(0);
+            List<Node> writers = predecessors.get(topic);
+            if (topic.getEdgeCount() != 1 || writers.size() != 1) {
+                continue;
+            }
+            Node upstream = writers.get(0);
+            if (upstream.isAgent() && upstream.getEdgeCount() == 1) {
+                fusedInto.put(agent, upstream);
+            }
+        }
+
+        // Every agent that is not fused heads a unit; follow the fused agents downstream from it
+        Set<Node> heads = new HashSet<>();
+        for (Node node : graph) {
+            if (node.isAgent() && !fusedInto.containsKey(node)) {
+                heads.add(node);
+            }
+        }
+        Map<Node, Node> next = new HashMap<>(); // Upstream agent -> the agent fused after it
+        for (Map.Entry<Node, Node> entry : fusedInto.entrySet()) {
+            next.put(entry.getValue(), entry.getKey());
+        }
+        List<Node> orderedHeads = new ArrayList<>(heads);
+        orderedHeads.sort((a, b) -> a.getName().compareTo(b.getName()));
+        for (Node head : orderedHeads) {
+            List<String> unit = new ArrayList<>();
+            for (Node agent = head; agent != null; agent = next.get(agent)) {
+                String agentName = agent.getName().substring(1);
+                unit.add(agentName);
+                headOf.put(agentName, head.getName().substring(1));
+            }
+            units.put(head.getName().substring(1), Collections.unmodifiableList(unit));
+        }
+    }
+
+    // Check if an agent is scheduled on its own (true), or runs inline after another agent of its unit (false)
+    public boolean isUnitHead(String agentName) {
+        return units.containsKey(agentName) || !headOf.containsKey(agentName);
+    }
+
+    // Get the agents of every unit, by head agent name
+    public Map<String, List<String>> getUnits() {
+        return Collections.unmodifiableMap(units);
+    }
+
+    // Get the number of queue hops removed by fusing agents
+    public int getRemovedHopCount() {
+        int removed = 0;
+        for (List<String> unit : units.values()) {
+            removed += unit.size() - 1;
+        }
+        return removed;
+    }
+
+    // Log the plan
+    public void logPlan() {
+        StringBuilder sb = new StringBuilder("Execution plan: ")
+            .append(headOf.size()).append(" agents in ").append(units.size()).append(" units, ")
+            .append(getRemovedHopCount()).append(" queue hops removed");
+        for (List<String> unit : units.values()) {
+            if (unit.size() > 1) {
+                sb.append("\n  fused: ").append(String.join(" -> ", unit));
+            }
+        }
+        LOGGER.info(sb.toString());
+    }
+
+    // Get the string representation of the plan
+    @Override
+    public String toString() {
+        return "ExecutionPlanner{units=" + units + "}";
+    }
+}
@@ -0,0 +1,58 @@
+package configs;
+
+import graph.Agent;
+import graph.Message;
+import graph.TopicManagerSingleton;
+
+/**
+ * An agent that publishes every input value unchanged on its output topic.
+ * The graph optimizer uses it to keep feeding the output topic of an agent it merged into an identical one.
+ */
+public class ForwardAgent implements Agent {
+    private final String name; // The name of the agent
+    private final String[] subs; // The input topics (subscribers)
+    private final String[] pubs; // The output topics (publishers)
+
+    // Create a ForwardAgent.
+    public ForwardAgent(String name, String[] subs, String[] pubs) {
+        this.name = name;
+        this.subs = subs;
+        this.pubs = pubs;
+        for (String sub : subs) {
+            TopicManagerSingleton.get().getTopic(sub).subscribe(this);
+        }
+        for (String pub : pubs) {
+            TopicManagerSingleton.get().getTopic(pub).addPublisher(this);
+        }
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    // Reset the agent (it has no state)
+    @Override
+    public void reset() {
+    }
+
+    // Called when a message is received on a subscribed topic.
+    @Override
+    public void callback(String topic, Message msg) {
+        TopicManagerSingleton.get().getTopic(pubs[0]).publish(new Message(msg.asText, msg.key));
+    }
+
+    // Close the agent
+    @Override
+    public void close() {
+        for (String sub : subs) {
+            TopicManagerSingleton.get().getTopic(sub).unsubscribe(this);
+        }
+    }
+
+    // Get the output topics
+    public String[] getPubs() { return pubs; }
+    // Get the input topics
+    public String[] getSubs() { return subs; }
+}
@@ -5,18 +5,91 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 
+import graph.AdaptiveAgent;
 import graph.Agent;
+import graph.BreakerState;
+import graph.ChangeSuppressingAgent;
+import graph.CircuitBreakerAgent;
+import graph.Envelope;
+import graph.Epoch;
+import graph.EpochBarrierAgent;
+import graph.MailboxAgent;
+import graph.MemoizingAgent;
+import graph.Message;
+import graph.OverflowPolicy;
 import graph.ParallelAgent;
+import graph.PriorityClass;
+import graph.PriorityScheduler;
+import graph.ReplicatedAgent;
+import graph.Topic;
+import graph.TopicManagerSingleton;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 /**
  * Represents a generic configuration for the computational graph.
  * Handles parsing, validation, and access to config properties.
  */
 public class GenericConfig implements Config {
+    private static final Logger LOGGER = Logger.getLogger(GenericConfig.class.getName());
+
     private String configFile = "";
-    private List<ParallelAgent> agents = new ArrayList<>();
+    private String configText; // The configuration itself, read instead of configFile when set
+    private List<Agent> agents = new ArrayList<>();
+    private ExecutionMode executionMode = ExecutionMode.PARALLEL; // How messages are delivered to the agents
+    private WaveExecutor waveExecutor; // The wave executor of the WAVE mode
+    private LazyEvaluator lazyEvaluator; // The evaluator of the LAZY mode
+    private ExecutionPlanner planner; // The fused units of the PLANNED mode
+    private PartitionExecutor partitionExecutor; // The partition threads of the PARTITIONED mode
+    private int partitionCount = Runtime.getRuntime().availableProcessors(); // Partitions of the PARTITIONED mode
+    private PriorityScheduler priorityScheduler; // The worker pool of the PRIORITY mode
+    private KeyedExecutor keyedExecutor; // The shard threads of the KEYED mode
+    private int keyShardCount = Runtime.getRuntime().availableProcessors(); // Shard threads of the KEYED mode
+    private final Map<String, PriorityClass> topicPriorities = new HashMap<>(); // Declared priority classes by topic name
+    private final Map<String, PriorityClass> agentPriorities = new HashMap<>(); // Declared priority classes by agent name
+    private final Set<String> highPriorityAgents = new HashSet<>(); // Agents in the high-priority class, declared or inferred (PRIORITY mode)
+    private long maxLowWaitMillis = 50; // Longest a low-priority agent waits while high-priority work keeps coming
+    private long inlineThresholdNanos = 50_000; // Average callback cost above which a PLANNED unit goes asynchronous
+    private int queueCapacity = 1; // Default ParallelAgent queue capacity
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK; // Default ParallelAgent overflow policy (lossless, the lossy ones are opt-in)
+    private long blockTimeoutMillis = 100; // How long BLOCK_WITH_TIMEOUT waits for room in a queue
+    private final Map<String, Integer> agentCapacities = new HashMap<>(); // Queue capacity overrides by agent name
+    private final Map<String, OverflowPolicy> agentPolicies = new HashMap<>(); // Overflow policy overrides by agent name
+    private final Set<String> conflatedTopics = new HashSet<>(); // Topics whose subscribers only receive the latest value
+    private boolean glitchFree = false; // Whether multi-input agents fire once per epoch
+    private boolean suppressUnchanged = false; // Whether unchanged values skip topic notifications and agent callbacks
+    private int fanOutThreshold = 0; // Subscriber count above which topics deliver in parallel (0 = never)
+    private final Set<String> statelessAgents = new HashSet<>(); // Agents (by name or class name) run as replicas
+    private int maxReplicas = Runtime.getRuntime().availableProcessors(); // Most replicas of a stateless agent
+    private final Set<String> replicaTopics = new HashSet<>(); // The shadow topics the replicas are built on, removed on close
+    private final Set<String> pureAgents = new HashSet<>(); // Agents (by name or class name) whose outputs are cached
+    private int memoCapacity = 4096; // Cached input tuples per pure agent
+    private final List<MemoizingAgent> memoizers = new ArrayList<>(); // The memoizing decorators
+    private long deadlineMillis = 0; // Default callback deadline of the agents (0 = no circuit breakers)
+    private final Map<String, Long> agentDeadlines = new HashMap<>(); // Callback deadline overrides by agent name or class name
+    private int breakerThreshold = 3; // Failures in a row that quarantine an agent
+    private long probeIntervalMillis = 1000; // How long a quarantined agent waits before a probe
+    private final List<CircuitBreakerAgent> breakers = new ArrayList<>(); // The circuit breakers of the agents
+    private long warmUpIterations = 0; // Warm-up passes run through a shadow copy of the graph at load (0 = no limit)
+    private long warmUpMillis = 0; // Longest the warm-up runs (0 = no limit; both 0 = no warm-up)
+    private GraphWarmUp warmUp; // The warm-up of the last create(), if it ran
+    private boolean optimize = false; // Whether the graph optimizer runs before the agents are bound
+    private final Set<String> observedTopics = new HashSet<>(); // Topics read from outside of the graph (empty = all of them)
+    private final Map<String, Double> constantTopics = new HashMap<>(); // Topics that hold one value forever, published at load
+    private GraphOptimizer optimizer; // The optimization plan of the last create(), if the optimizer ran
+    private final List<ChangeSuppressingAgent> suppressors = new ArrayList<>(); // The change-suppressing decorators
+    private final List<Agent> parsedAgents = new ArrayList<>(); // The agents as created from the file, before any wrapping
+    private final List<String[]> parsedSubs = new ArrayList<>(); // The input topics of each parsed agent
+    private final List<String[]> parsedPubs = new ArrayList<>(); // The output topics of each parsed agent
 
     // Load a generic configuration from a file.
     public static GenericConfig load(String filePath) throws IOException {
@@ -29,14 +102,324 @@ public class GenericConfig implements Config {
     // Set the configuration file.
     public void setConfFile(String name) {
         this.configFile = name;
+        this.configText = null;
+    }
+
+    // Set the configuration itself (agent blocks of three lines), instead of the file it is read from.
+    public void setConfText(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Configuration text cannot be null");
+        }
+        this.configText = text;
+        this.configFile = "";
+    }
+
+    // Set how messages are delivered to the agents of this configuration.
+    public void setExecutionMode(ExecutionMode executionMode) {
+        if (executionMode == null) {
+            throw new IllegalArgumentException("Execution mode cannot be null");
+        }
+        this.executionMode = executionMode;
+    }
+
+    // Set the number of partitions (and threads) of the PARTITIONED mode.
+    public void setPartitionCount(int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Partition count must be at least 1, got: " + partitionCount);
+        }
+        this.partitionCount = partitionCount;
+    }
+
+    // Set the number of shard threads the keys are spread over in KEYED mode.
+    public void setKeyShardCount(int keyShardCount) {
+        if (keyShardCount < 1) {
+            throw new IllegalArgumentException("Key shard count must be at least 1, got: " + keyShardCount);
+        }
+        this.keyShardCount = keyShardCount;
+    }
+
+    // Set the priority class of the agents reading a topic (PRIORITY mode).
+    public void setTopicPriority(String topicName, PriorityClass priority) {
+        if (topicName == null || topicName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Topic name cannot be null or empty");
+        }
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority class cannot be null");
+        }
+        topicPriorities.put(topicName.trim().toUpperCase(), priority); // Topic names are case-insensitive
+    }
+
+    // Set the priority class of one agent (by its generated name, e.g. "PlusAgent1"), overriding its topics (PRIORITY mode).
+    public void setAgentPriority(String agentName, PriorityClass priority) {
+        if (agentName == null || agentName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Agent name cannot be null or empty");
+        }
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority class cannot be null");
+        }
+        agentPriorities.put(agentName.trim(), priority);
+    }
+
+    // Set how long a low-priority agent may wait while high-priority work keeps coming (PRIORITY mode).
+    public void setStarvationLimit(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Starvation limit cannot be negative: " + millis);
+        }
+        this.maxLowWaitMillis = millis;
+    }
+
+    // Find the high-priority agents: the declared ones, the ones reading a high-priority topic, and every agent upstream of
+    // those or of a high-priority topic, unless declared LOW. agents, subs and pubs are parallel lists (one entry per agent).
+    private void inferPriorities(List<Agent> agents, List<String[]> subs, List<String[]> pubs) {
+        highPriorityAgents.clear();
+        Set<String> neededTopics = new HashSet<>(); // Topics a high-priority agent or reader waits on
+        for (Map.Entry<String, PriorityClass> topic : topicPriorities.entrySet()) {
+            if (topic.getValue() == PriorityClass.HIGH) {
+                neededTopics.add(topic.getKey());
+            }
+        }
+        for (int i = 0; i < agents.size(); i++) {
+            PriorityClass declared = agentPriorities.get(agents.get(i).getName());
+            boolean high = declared == PriorityClass.HIGH;
+            for (String sub : subs.get(i)) {
+                high |= declared == null && topicPriorities.get(sub.trim().toUpperCase()) == PriorityClass.HIGH;
+            }
+            if (high) {
+                highPriorityAgents.add(agents.get(i).getName());
+                for (String sub : subs.get(i)) {
+                    neededTopics.add(sub.trim().toUpperCase());
+                }
+            }
+        }
+        boolean changed = true;
+        while (changed) { // Walk the graph backwards until no new agent is found
+            changed = false;
+            for (int i = 0; i < agents.size(); i++) {
+                String name = agents.get(i).getName();
+                if (highPriorityAgents.contains(name) || agentPriorities.get(name) == PriorityClass.LOW) {
+                    continue;
+                }
+                for (String pub : pubs.get(i)) {
+                    if (neededTopics.contains(pub.trim().toUpperCase())) {
+                        highPriorityAgents.add(name);
+                        for (String sub : subs.get(i)) {
+                            neededTopics.add(sub.trim().toUpperCase());
+                        }
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    // Get the priority class of an agent (see inferPriorities)
+    private PriorityClass priorityOf(String agentName) {
+        return highPriorityAgents.contains(agentName) ? PriorityClass.HIGH : PriorityClass.LOW;
+    }
+
+    // Set the average callback cost above which a unit of the PLANNED mode leaves the publisher's thread.
+    public void setInlineThreshold(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Inline threshold cannot be negative: " + nanos);
+        }
+        this.inlineThresholdNanos = nanos;
+    }
+
+    // Set the default queue capacity and overflow policy of the ParallelAgents.
+    public void setQueuePolicy(int capacity, OverflowPolicy policy) {
+        validateQueuePolicy(capacity, policy);
+        this.queueCapacity = capacity;
+        this.overflowPolicy = policy;
+    }
+
+    // Set the queue capacity and overflow policy of one agent (by its generated name, e.g. "PlusAgent1").
+    public void setQueuePolicy(String agentName, int capacity, OverflowPolicy policy) {
+        if (agentName == null || agentName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Agent name cannot be null or empty");
+        }
+        validateQueuePolicy(capacity, policy);
+        agentCapacities.put(agentName, capacity);
+        agentPolicies.put(agentName, policy);
+    }
+
+    // Set how long BLOCK_WITH_TIMEOUT waits for room in a queue before dropping the message.
+    public void setBlockTimeout(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Block timeout cannot be negative: " + millis);
+        }
+        this.blockTimeoutMillis = millis;
+    }
+
+    // Set the topics whose subscribers only receive the latest pending value.
+    public void setConflatedTopics(Collection<String> topicNames) {
+        if (topicNames == null) {
+            throw new IllegalArgumentException("Topic names cannot be null");
+        }
+        conflatedTopics.clear();
+        for (String topicName : topicNames) {
+            if (topicName != null && !topicName.trim().isEmpty()) {
+                conflatedTopics.add(topicName.trim().toUpperCase()); // Topic names are case-insensitive
+            }
+        }
+    }
+
+    // Set whether external publishes are tagged with epochs so multi-input agents fire once per epoch.
+    public void setGlitchFree(boolean glitchFree) {
+        this.glitchFree = glitchFree;
+    }
+
+    // Set whether republishing an unchanged value skips topic notifications and agent recomputation.
+    public void setSuppressUnchanged(boolean suppressUnchanged) {
+        this.suppressUnchanged = suppressUnchanged;
+    }
+
+    // Set the subscriber count above which a topic delivers its messages in parallel on a pool (0 = never).
+    public void setFanOutThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Fan-out threshold cannot be negative: " + threshold);
+        }
+        this.fanOutThreshold = threshold;
+    }
+
+    // Declare agents stateless (by generated name, e.g. "IncAgent1", or class name, e.g. "IncAgent"), so they run as replicas.
+    public void setStatelessAgents(Collection<String> names) {
+        if (names == null) {
+            throw new IllegalArgumentException("Stateless agent names cannot be null");
+        }
+        statelessAgents.clear();
+        for (String name : names) {
+            if (name != null && !name.trim().isEmpty()) {
+                statelessAgents.add(name.trim());
+            }
+        }
+    }
+
+    // Declare agents pure (by generated name or class name), so their outputs are cached by input tuple.
+    public void setPureAgents(Collection<String> names) {
+        if (names == null) {
+            throw new IllegalArgumentException("Pure agent names cannot be null");
+        }
+        pureAgents.clear();
+        for (String name : names) {
+            if (name != null && !name.trim().isEmpty()) {
+                pureAgents.add(name.trim());
+            }
+        }
+    }
+
+    // Set the number of input tuples cached per pure agent.
+    public void setMemoCapacity(int memoCapacity) {
+        if (memoCapacity < 1) {
+            throw new IllegalArgumentException("Memo capacity must be at least 1, got: " + memoCapacity);
+        }
+        this.memoCapacity = memoCapacity;
+    }
+
+    // Set the callback deadline of every agent, in milliseconds; an agent that keeps missing it is quarantined (0 = no deadline).
+    public void setDeadline(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Deadline cannot be negative: " + millis);
+        }
+        this.deadlineMillis = millis;
+    }
+
+    // Set the callback deadline of one agent (by generated name or class name), in milliseconds (0 = no deadline).
+    public void setAgentDeadline(String agentName, long millis) {
+        if (agentName == null || agentName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Agent name cannot be null or empty");
+        }
+        if (millis < 0) {
+            throw new IllegalArgumentException("Deadline cannot be negative: " + millis);
+        }
+        agentDeadlines.put(agentName.trim(), millis);
+    }
+
+    // Set how many failures in a row quarantine an agent, and how long it stays quarantined before a probe.
+    public void setBreakerPolicy(int failureThreshold, long probeIntervalMillis) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1, got: " + failureThreshold);
+        }
+        if (probeIntervalMillis < 0) {
+            throw new IllegalArgumentException("Probe interval cannot be negative: " + probeIntervalMillis);
+        }
+        this.breakerThreshold = failureThreshold;
+        this.probeIntervalMillis = probeIntervalMillis;
+    }
+
+    // Warm the JIT up at load with synthetic values through a shadow copy of the graph, for a number of passes or milliseconds (both 0 = off).
+    public void setWarmUp(long iterations, long maxMillis) {
+        if (iterations < 0 || maxMillis < 0) {
+            throw new IllegalArgumentException("Warm-up iterations and time cannot be negative: " + iterations + ", " + maxMillis);
+        }
+        this.warmUpIterations = iterations;
+        this.warmUpMillis = maxMillis;
+    }
+
+    // Set whether the graph optimizer folds constants, merges identical agents and removes dead ones at load.
+    public void setOptimize(boolean optimize) {
+        this.optimize = optimize;
+    }
+
+    // Set the topics read from outside of the graph; the optimizer removes the agents none of them depends on (empty = keep all).
+    public void setObservedTopics(Collection<String> topicNames) {
+        if (topicNames == null) {
+            throw new IllegalArgumentException("Observed topic names cannot be null");
+        }
+        observedTopics.clear();
+        for (String name : topicNames) {
+            if (name != null && !name.trim().isEmpty()) {
+                observedTopics.add(name.trim().toUpperCase()); // Topic names are case-insensitive
+            }
+        }
+    }
+
+    // Declare topics that hold one value forever; they are published once at load and the optimizer folds what they feed.
+    public void setConstantTopics(Map<String, Double> constants) {
+        if (constants == null) {
+            throw new IllegalArgumentException("Constant topics cannot be null");
+        }
+        constantTopics.clear();
+        for (Map.Entry<String, Double> constant : constants.entrySet()) {
+            if (constant.getKey() == null || constant.getKey().trim().isEmpty()) {
+                throw new IllegalArgumentException("Constant topic name cannot be null or empty");
+            }
+            if (constant.getValue() == null || constant.getValue().isNaN() || constant.getValue().isInfinite()) {
+                throw new IllegalArgumentException("Constant topic " + constant.getKey() + " needs a finite value");
+            }
+            constantTopics.put(constant.getKey().trim().toUpperCase(), constant.getValue());
+        }
+    }
+
+    // Set the most replicas a stateless agent grows to.
+    public void setMaxReplicas(int maxReplicas) {
+        if (maxReplicas < 1) {
+            throw new IllegalArgumentException("Replica count must be at least 1, got: " + maxReplicas);
+        }
+        this.maxReplicas = maxReplicas;
+    }
+
+    // Validate a queue capacity and overflow policy
+    private static void validateQueuePolicy(int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1, got: " + capacity);
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Overflow policy cannot be null");
+        }
     }
 
     // Create the configuration.
     @Override
     public void create() {
         try {
-            agents.clear();
-            List<String> lines = Files.readAllLines(Paths.get(configFile));
+            close(); // Stop the agents of a previous create()
+            List<Agent> created = new ArrayList<>(); // The agents in the order they were created
+            List<String[]> createdSubs = new ArrayList<>(); // The input topics of each created agent
+            List<String[]> createdPubs = new ArrayList<>(); // The output topics of each created agent
+            List<String> lines = configText != null
+                ? new ArrayList<>(Arrays.asList(configText.split("\\R")))
+                : Files.readAllLines(Paths.get(configFile));
             lines.removeIf(line -> line.trim().isEmpty());
 
             // Handle the case where missing part of the block
@@ -87,18 +470,464 @@ public class GenericConfig implements Config {
                     Class<?> agentClass = Class.forName(shortClassName); // Get the class of the agent
                     java.lang.reflect.Constructor<?> ctor = agentClass.getConstructor(String.class, String[].class, String[].class); // Get the constructor of the agent
                     Agent agent = (Agent) ctor.newInstance(agentName, pubsArray, subsArray); // Create a new instance of the agent
-                    agents.add(new ParallelAgent(agent, 1)); // Add the agent to the list
+                    created.add(agent); // Add the agent to the list
+                    createdSubs.add(pubsArray); // The second line of the block holds the input topics
+                    createdPubs.add(subsArray);
                 } catch (ClassNotFoundException e) { // If the class is not found, throw an exception
                     throw new IllegalArgumentException("Agent class not found: " + shortClassName, e);
                 } catch (Exception e) { // If there is an error creating the agent, throw an exception
                     throw new IllegalArgumentException("Error creating agent of type '" + shortClassName + ": " + e.getMessage(), e);
                 }
             }
+
+            for (String topicName : conflatedTopics) {
+                if (TopicManagerSingleton.get().hasTopic(topicName)) {
+                    TopicManagerSingleton.get().getTopic(topicName).setConflating(true);
+                }
+            }
+
+            for (Topic topic : TopicManagerSingleton.get().getTopics()) {
+                topic.setFanOutThreshold(fanOutThreshold);
+            }
+
+            // The configuration as written, before the optimizer changes it
+            List<Agent> writtenAgents = new ArrayList<>(created);
+            List<String[]> writtenSubs = new ArrayList<>(createdSubs);
+            List<String[]> writtenPubs = new ArrayList<>(createdPubs);
+            Map<String, Double> loadValues = constantTopics; // Values published once the agents are bound
+
+            // Fold constants, merge identical agents and drop dead ones before any of them is bound
+            if (optimize) {
+                optimizer = new GraphOptimizer(created, createdSubs, createdPubs, observedTopics, constantTopics);
+                optimizer.logReport();
+                for (int i = created.size() - 1; i >= 0; i--) {
+                    if (optimizer.isRemoved(created.get(i))) {
+                        for (String sub : createdSubs.get(i)) {
+                            TopicManagerSingleton.get().getTopic(sub).unsubscribe(created.get(i));
+                        }
+                        for (String pub : createdPubs.get(i)) {
+                            TopicManagerSingleton.get().getTopic(pub).removePublisher(created.get(i));
+                        }
+                        created.remove(i);
+                        createdSubs.remove(i);
+                        createdPubs.remove(i);
+                    }
+                }
+                for (Map.Entry<String, String> forward : optimizer.getForwards().entrySet()) {
+                    String[] forwardSubs = {forward.getValue()};
+                    String[] forwardPubs = {forward.getKey()};
+                    created.add(new ForwardAgent("Forward" + forward.getKey(), forwardSubs, forwardPubs));
+                    createdSubs.add(forwardSubs);
+                    createdPubs.add(forwardPubs);
+                }
+                loadValues = optimizer.getConstants();
+            }
+
+            List<Agent> decorated = new ArrayList<>(created); // The agents with the decorators chosen below
+
+            // Cache the outputs of the pure agents, and run the stateless ones as replicas sharing their input stream
+            // (compiled and keyed agents are replaced instead)
+            for (int i = 0; i < created.size()
+                && executionMode != ExecutionMode.COMPILED && executionMode != ExecutionMode.KEYED; i++) {
+                Agent agent = created.get(i);
+                if (pureAgents.contains(agent.getName()) || pureAgents.contains(agent.getClass().getSimpleName())) {
+                    MemoizingAgent memoizer = new MemoizingAgent(agent, createdSubs.get(i), createdPubs.get(i), memoCapacity);
+                    memoizers.add(memoizer);
+                    decorated.set(i, memoizer); // Hits are cheap, so a memoized agent is not also replicated
+                } else if (statelessAgents.contains(agent.getName()) || statelessAgents.contains(agent.getClass().getSimpleName())) {
+                    String name = agent.getName();
+                    if (createdSubs.get(i).length > 1) { // Each replica would only see some of the inputs it combines
+                        throw new IllegalArgumentException("Agent " + name + " cannot be stateless: it has "
+                            + createdSubs.get(i).length + " inputs and keeps the last value of each");
+                    }
+                    if (agent instanceof TimerAgent || agent instanceof DelayAgent) { // They publish from their timers, outside the ordered merge
+                        throw new IllegalArgumentException("Agent " + name + " cannot be stateless: it publishes from its own timers");
+                    }
+                    decorated.set(i, new ReplicatedAgent(agent,
+                        replicaFactory(agent, createdSubs.get(i), createdPubs.get(i)), 1, maxReplicas,
+                        agentCapacities.getOrDefault(name, queueCapacity), agentPolicies.getOrDefault(name, overflowPolicy),
+                        blockTimeoutMillis));
+                }
+            }
+
+            // Run the agents with a deadline behind circuit breakers, so a stuck agent cannot stall its publishers
+            for (int i = 0; i < created.size()
+                && executionMode != ExecutionMode.COMPILED && executionMode != ExecutionMode.KEYED; i++) {
+                Agent agent = created.get(i);
+                long deadline = agentDeadlines.getOrDefault(agent.getName(),
+                    agentDeadlines.getOrDefault(agent.getClass().getSimpleName(), deadlineMillis));
+                if (deadline > 0) {
+                    CircuitBreakerAgent breaker = new CircuitBreakerAgent(decorated.get(i), deadline,
+                        breakerThreshold, probeIntervalMillis);
+                    breakers.add(breaker);
+                    decorated.set(i, breaker);
+                }
+            }
+
+            Graph graph = null;
+            if (executionMode == ExecutionMode.WAVE || executionMode == ExecutionMode.PLANNED
+                || executionMode == ExecutionMode.PARTITIONED || glitchFree) {
+                graph = new Graph();
+                graph.createFromTopics();
+            }
+
+            // Hold back multi-input agents until every input of an epoch has arrived
+            if (glitchFree) {
+                Map<Node, Set<Node>> reachable = new HashMap<>(); // Nodes reachable from each source topic
+                for (Node source : graph.getSourceNodes()) {
+                    if (source.isTopic()) {
+                        TopicManagerSingleton.get().getTopic(source.getName().substring(1)).setEpochSource(true);
+                        reachable.put(source, graph.getReachableNodes(source));
+                    }
+                }
+                for (int i = 0; i < created.size(); i++) {
+                    Map<String, Set<String>> expected = expectedInputs(createdSubs.get(i), reachable);
+                    if (!expected.isEmpty()) {
+                        decorated.set(i, new EpochBarrierAgent(decorated.get(i), expected));
+                    }
+                }
+            }
+
+            // Skip notifications whose value did not change, and evaluations whose inputs did not change
+            // (only for agents whose outputs depend on their inputs alone: the arithmetic ones and the declared pure ones)
+            if (suppressUnchanged) {
+                for (Topic topic : TopicManagerSingleton.get().getTopics()) {
+                    topic.setSuppressUnchanged(true);
+                }
+                for (int i = 0; i < created.size(); i++) {
+                    Agent agent = created.get(i);
+                    if (ArithmeticOp.of(agent) == null && !pureAgents.contains(agent.getName())
+                        && !pureAgents.contains(agent.getClass().getSimpleName())) {
+                        continue;
+                    }
+                    ChangeSuppressingAgent suppressor = new ChangeSuppressingAgent(decorated.get(i));
+                    suppressors.add(suppressor);
+                    decorated.set(i, suppressor);
+                }
+            }
+
+            // Put the chosen execution engine between the topics and the agents
+            if (executionMode == ExecutionMode.WAVE) {
+                waveExecutor = new WaveExecutor(graph);
+            } else if (executionMode == ExecutionMode.LAZY) {
+                lazyEvaluator = new LazyEvaluator();
+            } else if (executionMode == ExecutionMode.PLANNED) {
+                planner = new ExecutionPlanner(graph);
+                planner.logPlan();
+            } else if (executionMode == ExecutionMode.PARTITIONED) {
+                partitionExecutor = new PartitionExecutor(new GraphPartitioner(graph, partitionCount));
+            } else if (executionMode == ExecutionMode.PRIORITY) {
+                priorityScheduler = new PriorityScheduler(Runtime.getRuntime().availableProcessors(), maxLowWaitMillis);
+                inferPriorities(created, createdSubs, createdPubs);
+            } else if (executionMode == ExecutionMode.KEYED) {
+                keyedExecutor = new KeyedExecutor(keyShardCount);
+            }
+            Set<Agent> compiledAgents = new HashSet<>(); // Agents replaced by a compiled subgraph
+            if (executionMode == ExecutionMode.COMPILED) {
+                for (CompiledSubgraph subgraph : SubgraphCompiler.compile(created, createdSubs, createdPubs)) {
+                    compiledAgents.addAll(subgraph.getReplacedAgents());
+                    agents.add(subgraph); // Already subscribed to its source topics
+                }
+            }
+            for (int i = 0; i < created.size(); i++) {
+                if (compiledAgents.contains(created.get(i))) { // The compiled function runs in place of the agent
+                    for (String sub : createdSubs.get(i)) {
+                        TopicManagerSingleton.get().getTopic(sub).unsubscribe(created.get(i));
+                    }
+                    continue;
+                }
+                ArithmeticOp op = ArithmeticOp.of(created.get(i));
+                if (keyedExecutor != null && op != null) { // One keyed agent keeps the state of every key in place of the agent
+                    for (String sub : createdSubs.get(i)) {
+                        TopicManagerSingleton.get().getTopic(sub).unsubscribe(created.get(i));
+                    }
+                    for (String pub : createdPubs.get(i)) {
+                        TopicManagerSingleton.get().getTopic(pub).removePublisher(created.get(i));
+                    }
+                    agents.add(new KeyedAgent(created.get(i).getName(), op, createdSubs.get(i), createdPubs.get(i), keyedExecutor));
+                    continue;
+                }
+                agents.add(bind(created.get(i), decorated.get(i), createdSubs.get(i), createdPubs.get(i)));
+            }
+            if (lazyEvaluator != null) {
+                lazyEvaluator.install();
+            }
+            for (Map.Entry<String, Double> constant : loadValues.entrySet()) {
+                if (TopicManagerSingleton.get().hasTopic(constant.getKey())) {
+                    TopicManagerSingleton.get().getTopic(constant.getKey()).publish(new Message(constant.getValue()));
+                }
+            }
+            parsedAgents.addAll(writtenAgents);
+            parsedSubs.addAll(writtenSubs);
+            parsedPubs.addAll(writtenPubs);
+
+            // Get the hot paths compiled before the first real publish, without touching the real topics
+            if (warmUpIterations > 0 || warmUpMillis > 0) {
+                try {
+                    warmUp = new GraphWarmUp(writtenAgents, writtenSubs, writtenPubs);
+                    warmUp.run(warmUpIterations, warmUpMillis);
+                    warmUp.logReport();
+                } catch (RuntimeException e) { // The configuration still loads, only colder
+                    warmUp = null;
+                    LOGGER.warning("Warm-up skipped: " + e.getMessage());
+                }
+            }
         } catch (IOException e) {
             throw new IllegalArgumentException("Error reading config file: " + e.getMessage(), e);
         }
     }
 
+    // Create new instances of an agent's class on shadow topics, so a replica never touches the live topics.
+    private Supplier<Agent> replicaFactory(Agent agent, String[] subs, String[] pubs) {
+        String[] shadowSubs = shadowNames(subs);
+        String[] shadowPubs = shadowNames(pubs);
+        synchronized (replicaTopics) {
+            replicaTopics.addAll(Arrays.asList(shadowSubs));
+            replicaTopics.addAll(Arrays.asList(shadowPubs));
+        }
+        return () -> {
+            Agent replica;
+            try {
+                replica = agent.getClass().getConstructor(String.class, String[].class, String[].class)
+                    .newInstance(agent.getName(), shadowSubs, shadowPubs);
+            } catch (Exception e) {
+                throw new RuntimeException("Error creating a replica of agent: " + agent.getName(), e);
+            }
+            for (String sub : shadowSubs) { // The replicated agent receives the messages in place of the replica
+                TopicManagerSingleton.get().getTopic(sub).unsubscribe(replica);
+            }
+            for (String pub : shadowPubs) {
+                TopicManagerSingleton.get().getTopic(pub).removePublisher(replica);
+            }
+            return new ShadowReplica(replica);
+        };
+    }
+
+    // Get the shadow names of the topics of a replica
+    private static String[] shadowNames(String[] topics) {
+        String[] names = new String[topics.length];
+        for (int i = 0; i < topics.length; i++) {
+            names[i] = ShadowReplica.PREFIX + topics[i].trim().toUpperCase();
+        }
+        return names;
+    }
+
+    // For each source topic, find the inputs of an agent that derive from it (only where more than one does).
+    private static Map<String, Set<String>> expectedInputs(String[] subs, Map<Node, Set<Node>> reachable) {
+        Map<String, Set<String>> expected = new HashMap<>();
+        for (Map.Entry<Node, Set<Node>> entry : reachable.entrySet()) {
+            Set<String> inputs = new HashSet<>();
+            for (String sub : subs) {
+                Node input = new Node("T" + sub.trim().toUpperCase());
+                if (input.equals(entry.getKey()) || entry.getValue().contains(input)) {
+                    inputs.add(sub.trim().toUpperCase());
+                }
+            }
+            if (inputs.size() > 1) {
+                expected.put(entry.getKey().getName().substring(1), inputs);
+            }
+        }
+        return expected;
+    }
+
+    // Wrap an agent (with its decorators) for the execution mode and subscribe the wrapper in place of the agent.
+    private Agent bind(Agent created, Agent agent, String[] subs, String[] pubs) {
+        Agent wrapper;
+        if (executionMode == ExecutionMode.WAVE) {
+            wrapper = waveExecutor.bind(agent);
+        } else if (executionMode == ExecutionMode.LAZY) {
+            wrapper = lazyEvaluator.bind(agent, subs, pubs);
+        } else if (executionMode == ExecutionMode.ACTOR) {
+            wrapper = new MailboxAgent(agent);
+        } else if (executionMode == ExecutionMode.PARTITIONED) {
+            wrapper = partitionExecutor.bind(agent);
+        } else if (executionMode == ExecutionMode.PRIORITY) {
+            wrapper = priorityScheduler.bind(agent, priorityOf(agent.getName()));
+        } else if (executionMode == ExecutionMode.PLANNED) {
+            // Fused agents run inline on the thread of their unit head
+            wrapper = planner.isUnitHead(agent.getName()) ? new AdaptiveAgent(agent, inlineThresholdNanos) : agent;
+        } else {
+            String name = agent.getName();
+            OverflowPolicy policy = overflowPolicy;
+            for (String sub : subs) {
+                if (conflatedTopics.contains(sub.trim().toUpperCase())) {
+                    policy = OverflowPolicy.CONFLATE; // Keep the queue down to the latest value per conflated input too
+                }
+            }
+            wrapper = new ParallelAgent(agent,
+                agentCapacities.getOrDefault(name, queueCapacity),
+                executionMode == ExecutionMode.VIRTUAL,
+                agentPolicies.getOrDefault(name, policy),
+                blockTimeoutMillis);
+        }
+        for (String sub : subs) {
+            TopicManagerSingleton.get().getTopic(sub).unsubscribe(created);
+            TopicManagerSingleton.get().getTopic(sub).subscribe(wrapper);
+        }
+        return wrapper;
+    }
+
+    // Get the execution mode of the configuration.
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    // Create a batch evaluator running the agents of the configuration over columns of input values.
+    public BatchEvaluator createBatchEvaluator() {
+        if (parsedAgents.isEmpty()) {
+            throw new IllegalStateException("The configuration has not been created");
+        }
+        return new BatchEvaluator(parsedAgents, parsedSubs, parsedPubs);
+    }
+
+    // Compile the agents of the configuration into one stateless function, evaluated in per-request contexts.
+    public CompiledGraph compileGraph() {
+        if (parsedAgents.isEmpty()) {
+            throw new IllegalStateException("The configuration has not been created");
+        }
+        return SubgraphCompiler.compileGraph(parsedAgents, parsedSubs, parsedPubs);
+    }
+
+    // Get the scheduler of the PRIORITY mode, with the latency of each class (null in the other modes).
+    public PriorityScheduler getPriorityScheduler() {
+        return priorityScheduler;
+    }
+
+    // Get the shard threads of the KEYED mode (null in the other modes).
+    public KeyedExecutor getKeyedExecutor() {
+        return keyedExecutor;
+    }
+
+    // Get the partition executor of the PARTITIONED mode (null in the other modes).
+    public PartitionExecutor getPartitionExecutor() {
+        return partitionExecutor;
+    }
+
+    // Get the optimization plan of the configuration (null if the optimizer did not run).
+    public GraphOptimizer getOptimizer() {
+        return optimizer;
+    }
+
+    // Get the execution plan of the PLANNED mode (null in the other modes).
+    public ExecutionPlanner getPlanner() {
+        return planner;
+    }
+
+    // Get the agents of the configuration (as wrapped by the execution mode).
+    public List<Agent> getAgents() {
+        return new ArrayList<>(agents);
+    }
+
+    // Close the agents of the configuration and stop their threads.
+    public void close() {
+        for (Agent agent : agents) {
+            try {
+                for (Topic topic : TopicManagerSingleton.get().getTopics()) {
+                    topic.unsubscribe(agent); // The wrapper is the subscriber, not the agent itself
+                }
+                agent.close();
+            } catch (Exception e) {
+                // Continue closing the other agents even if one fails
+            }
+        }
+        agents.clear();
+        synchronized (replicaTopics) {
+            for (String topic : replicaTopics) {
+                TopicManagerSingleton.get().removeTopic(topic);
+            }
+            replicaTopics.clear();
+        }
+        suppressors.clear();
+        memoizers.clear();
+        breakers.clear();
+        parsedAgents.clear();
+        parsedSubs.clear();
+        parsedPubs.clear();
+        if (waveExecutor != null) {
+            waveExecutor.close();
+            waveExecutor = null;
+        }
+        if (lazyEvaluator != null) {
+            lazyEvaluator.close();
+            lazyEvaluator = null;
+        }
+        planner = null;
+        optimizer = null;
+        warmUp = null;
+        if (partitionExecutor != null) {
+            partitionExecutor.close();
+            partitionExecutor = null;
+        }
+        if (priorityScheduler != null) {
+            priorityScheduler.close();
+            priorityScheduler = null;
+        }
+        if (keyedExecutor != null) {
+            keyedExecutor.close();
+            keyedExecutor = null;
+        }
+    }
+
+    // Get the number of agent evaluations skipped because their inputs did not change.
+    public long getSuppressedEvaluations() {
+        long total = 0;
+        for (ChangeSuppressingAgent suppressor : suppressors) {
+            total += suppressor.getSuppressedCount();
+        }
+        return total;
+    }
+
+    // Get the number of evaluations of pure agents answered from their caches.
+    public long getMemoHitCount() {
+        long total = 0;
+        for (MemoizingAgent memoizer : memoizers) {
+            total += memoizer.getCache().getHitCount();
+        }
+        return total;
+    }
+
+    // Get the number of evaluations of pure agents that ran the agent.
+    public long getMemoMissCount() {
+        long total = 0;
+        for (MemoizingAgent memoizer : memoizers) {
+            total += memoizer.getCache().getMissCount();
+        }
+        return total;
+    }
+
+    // Get the memoizing decorators of the pure agents.
+    public List<MemoizingAgent> getMemoizers() {
+        return new ArrayList<>(memoizers);
+    }
+
+    // Get the warm-up of the last create(), or null if it did not run.
+    public GraphWarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    // Get the circuit breakers of the agents that run with a deadline.
+    public List<CircuitBreakerAgent> getCircuitBreakers() {
+        return new ArrayList<>(breakers);
+    }
+
+    // Get the breaker state of every agent that runs with a deadline, by agent name.
+    public Map<String, BreakerState> getAgentStates() {
+        Map<String, BreakerState> states = new LinkedHashMap<>();
+        for (CircuitBreakerAgent breaker : breakers) {
+            states.put(breaker.getName(), breaker.getState());
+        }
+        return states;
+    }
+
+    // Get the number of topic notifications skipped because the published value did not change.
+    public long getSuppressedNotifications() {
+        long total = 0;
+        for (Topic topic : TopicManagerSingleton.get().getTopics()) {
+            total += topic.getSuppressedCount();
+        }
+        return total;
+    }
+
     // Get the name of the configuration.
     @Override
     public String getName() {
@@ -118,4 +947,46 @@ public class GenericConfig implements Config {
         // Implement validation logic for the config
         return true; // Placeholder, update with real validation
     }
-}
\ No newline at end of file
+
+    /**
+     * A replica of a stateless agent built on shadow topics. Inputs arrive under their live topic
+     * names and are handed to the replica under the shadow names; what the replica publishes on its
+     * shadow topics is published again on the live topics, where the replicated agent captures it.
+     */
+    private static final class ShadowReplica implements Agent {
+        static final String PREFIX = TopicManagerSingleton.SHADOW_PREFIX + "REPLICA__"; // Prefix of the shadow topic names
+
+        private final Agent replica; // The replica, subscribed to nothing
+
+        ShadowReplica(Agent replica) {
+            this.replica = replica;
+        }
+
+        // Called with an input of the live topics: run the replica on the shadow topics
+        @Override
+        public void callback(String topic, Message msg) {
+            for (Envelope output : Epoch.deliverCaptured(replica, PREFIX + topic.trim().toUpperCase(), msg)) {
+                String live = output.topic.substring(PREFIX.length());
+                TopicManagerSingleton.get().getTopic(live).publish(output.msg);
+            }
+        }
+
+        // Get the name of the agent
+        @Override
+        public String getName() {
+            return replica.getName();
+        }
+
+        // Reset the replica
+        @Override
+        public void reset() {
+            replica.reset();
+        }
+
+        // Close the replica
+        @Override
+        public void close() {
+            replica.close();
+        }
+    }
+}
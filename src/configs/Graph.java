@@ -1,7 +1,9 @@
 package configs;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.HashSet;
 import java.util.Set;
@@ -64,7 +66,7 @@ public class Graph extends ArrayList<Node>{
                     continue;
                 }
                 
-                if (topic.name == null || topic.name.trim().isEmpty()) {
+                if (topic.name == null || topic.name.trim().isEmpty() || TopicManagerSingleton.isShadow(topic.name)) {
                     continue;
                 }
                 
@@ -183,6 +185,39 @@ public class Graph extends ArrayList<Node>{
         return null;
     }
     
+    // Get the nodes that have no incoming edges
+    public List<Node> getSourceNodes() {
+        Set<Node> targets = new HashSet<>();
+        for (Node node : this) {
+            if (node != null) {
+                targets.addAll(node.getEdges());
+            }
+        }
+        List<Node> sources = new ArrayList<>();
+        for (Node node : this) {
+            if (node != null && !targets.contains(node)) {
+                sources.add(node);
+            }
+        }
+        return sources;
+    }
+    
+    // Get every node reachable from the given node (not including the node itself)
+    public Set<Node> getReachableNodes(Node start) {
+        Set<Node> reachable = new HashSet<>();
+        if (start == null) {
+            return reachable;
+        }
+        ArrayDeque<Node> toVisit = new ArrayDeque<>(start.getEdges());
+        while (!toVisit.isEmpty()) {
+            Node node = toVisit.poll();
+            if (node != null && reachable.add(node)) {
+                toVisit.addAll(node.getEdges());
+            }
+        }
+        return reachable;
+    }
+    
     // Get the string representation of the graph
     @Override
     public String toString() {
@@ -0,0 +1,211 @@
+package configs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import graph.Agent;
+
+/**
+ * Plans the optimization of a parsed configuration before its agents are bound.
+ * Three passes run in order:
+ * constant folding evaluates the arithmetic agents whose inputs are all declared or folded constants;
+ * common-subexpression elimination merges arithmetic agents with the same operation over the same
+ * inputs, forwarding the output of a merged agent from the one it was merged into;
+ * dead-agent removal drops the agents no observed topic depends on (only when topics are observed).
+ * The observable topic values stay the same: folded topics are published once, merged topics are forwarded.
+ */
+public class GraphOptimizer {
+    private static final Logger LOGGER = Logger.getLogger(GraphOptimizer.class.getName());
+
+    private final Set<Agent> removed = new HashSet<>(); // The agents that are not bound
+    private final Map<String, String> forwards = new LinkedHashMap<>(); // Topics to keep feeding, from the topic of the agent they were merged into
+    private final Map<String, Double> constants = new LinkedHashMap<>(); // Declared and folded constant topic values
+    private final List<String> report = new ArrayList<>(); // What was done, one line per change
+
+    // Plan the optimization of the agents of a configuration (observed may be empty: then no agent is dead).
+    public GraphOptimizer(List<Agent> agents, List<String[]> subs, List<String[]> pubs,
+                          Collection<String> observed, Map<String, Double> declaredConstants) {
+        if (agents == null || subs == null || pubs == null || observed == null || declaredConstants == null) {
+            throw new IllegalArgumentException("Optimizer arguments cannot be null");
+        }
+        if (agents.size() != subs.size() || agents.size() != pubs.size()) {
+            throw new IllegalArgumentException("Every agent needs its input and output topics");
+        }
+        int n = agents.size();
+        String[][] in = new String[n][];
+        String[][] out = new String[n][];
+        Map<String, List<Integer>> writers = new HashMap<>(); // Agents publishing on each topic
+        for (int i = 0; i < n; i++) {
+            in[i] = normalize(subs.get(i));
+            out[i] = normalize(pubs.get(i));
+            for (String topic : out[i]) {
+                writers.computeIfAbsent(topic, t -> new ArrayList<>()).add(i);
+            }
+        }
+        for (Map.Entry<String, Double> constant : declaredConstants.entrySet()) {
+            constants.put(constant.getKey().trim().toUpperCase(), constant.getValue());
+        }
+        boolean[] gone = new boolean[n];
+        fold(agents, in, out, writers, gone);
+        eliminateCommon(agents, in, out, gone);
+        if (!observed.isEmpty()) {
+            removeDead(agents, in, out, writers, normalize(observed.toArray(new String[0])), gone);
+        }
+    }
+
+    // Upper-case and trim topic names
+    private static String[] normalize(String[] topics) {
+        String[] names = new String[topics.length];
+        for (int i = 0; i < topics.length; i++) {
+            names[i] = topics[i].trim().toUpperCase();
+        }
+        return names;
+    }
+
+    // Evaluate the arithmetic agents whose inputs are all constant, until no more can be
+    private void fold(List<Agent> agents, String[][] in, String[][] out, Map<String, List<Integer>> writers, boolean[] gone) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < agents.size(); i++) {
+                ArithmeticOp op = ArithmeticOp.of(agents.get(i));
+                if (gone[i] || op == null || in[i].length != op.getArity() || out[i].length != 1
+                    || writers.get(out[i][0]).size() != 1 || constants.containsKey(out[i][0])) {
+                    continue; // Only a topic this agent alone writes becomes constant
+                }
+                Double x = constants.get(in[i][0]);
+                Double y = op.getArity() > 1 ? constants.get(in[i][1]) : Double.valueOf(0);
+                if (x == null || y == null) {
+                    continue;
+                }
+                double value = op.apply(x, y);
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    continue;
+                }
+                constants.put(out[i][0], value);
+                remove(agents.get(i), gone, i, "folded " + agents.get(i).getName() + ": " + out[i][0] + " = " + value);
+                changed = true;
+            }
+        }
+    }
+
+    // Merge the arithmetic agents computing the same operation over the same inputs
+    private void eliminateCommon(List<Agent> agents, String[][] in, String[][] out, boolean[] gone) {
+        Map<String, Integer> first = new HashMap<>(); // The first agent of every signature
+        for (int i = 0; i < agents.size(); i++) {
+            ArithmeticOp op = ArithmeticOp.of(agents.get(i));
+            if (gone[i] || op == null || in[i].length != op.getArity() || out[i].length != 1) {
+                continue;
+            }
+            String[] inputs = in[i].clone();
+            if (op != ArithmeticOp.INC) { // Addition and multiplication do not depend on the input order
+                Arrays.sort(inputs);
+            }
+            String signature = op + "(" + String.join(",", inputs) + ")";
+            Integer kept = first.putIfAbsent(signature, i);
+            if (kept == null) {
+                continue;
+            }
+            String target = out[i][0];
+            String source = out[kept][0];
+            if (target.equals(source)) {
+                remove(agents.get(i), gone, i, "merged " + agents.get(i).getName() + " into " + agents.get(kept).getName());
+            } else {
+                forwards.put(target, source);
+                remove(agents.get(i), gone, i, "merged " + agents.get(i).getName() + " into " + agents.get(kept).getName()
+                    + ", " + target + " forwarded from " + source);
+            }
+        }
+    }
+
+    // Remove the agents that no observed topic depends on, and the forwards nobody needs
+    private void removeDead(List<Agent> agents, String[][] in, String[][] out, Map<String, List<Integer>> writers,
+                            String[] observed, boolean[] gone) {
+        Set<String> live = new HashSet<>(); // Topics an observed topic depends on
+        boolean[] needed = new boolean[agents.size()];
+        Deque<String> pending = new ArrayDeque<>(Arrays.asList(observed));
+        while (!pending.isEmpty()) {
+            String topic = pending.poll();
+            if (!live.add(topic)) {
+                continue;
+            }
+            for (int i : writers.getOrDefault(topic, Collections.emptyList())) {
+                if (!gone[i] && !needed[i]) {
+                    needed[i] = true;
+                    pending.addAll(Arrays.asList(in[i]));
+                }
+            }
+            String source = forwards.get(topic);
+            if (source != null) {
+                pending.add(source);
+            }
+        }
+        for (int i = 0; i < agents.size(); i++) {
+            if (!gone[i] && !needed[i]) {
+                remove(agents.get(i), gone, i, "removed " + agents.get(i).getName() + ": no observed topic depends on "
+                    + String.join(", ", out[i]));
+            }
+        }
+        forwards.keySet().removeIf(target -> !live.contains(target));
+    }
+
+    // Mark an agent removed and report why
+    private void remove(Agent agent, boolean[] gone, int index, String reason) {
+        gone[index] = true;
+        removed.add(agent);
+        report.add(reason);
+    }
+
+    // Check if an agent is not bound
+    public boolean isRemoved(Agent agent) {
+        return removed.contains(agent);
+    }
+
+    // Get the number of agents that are not bound
+    public int getRemovedCount() {
+        return removed.size();
+    }
+
+    // Get the topics to keep feeding, by the topic to forward from
+    public Map<String, String> getForwards() {
+        return Collections.unmodifiableMap(forwards);
+    }
+
+    // Get the values of the constant topics, declared and folded
+    public Map<String, Double> getConstants() {
+        return Collections.unmodifiableMap(constants);
+    }
+
+    // Get what the optimizer did, one line per change
+    public List<String> getReport() {
+        return Collections.unmodifiableList(report);
+    }
+
+    // Log what the optimizer did
+    public void logReport() {
+        StringBuilder sb = new StringBuilder("Graph optimizer: ")
+            .append(removed.size()).append(" agents removed, ")
+            .append(forwards.size()).append(" topics forwarded");
+        for (String line : report) {
+            sb.append("\n  ").append(line);
+        }
+        LOGGER.info(sb.toString());
+    }
+
+    // Get the string representation of the optimizer
+    @Override
+    public String toString() {
+        return "GraphOptimizer{removed=" + removed.size() + ", forwards=" + forwards + "}";
+    }
+}
@@ -0,0 +1,283 @@
+package configs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the agents of a graph into partitions with few edges between them.
+ * Disconnected components are kept whole whenever they fit in a partition. Components that
+ * are too large are cut by recursive bisection: each half is grown by breadth-first search,
+ * then refined with Fiduccia-Mattheyses passes that move single agents across the cut while
+ * the cut gets smaller and the halves stay balanced. The pieces are then packed into the
+ * partitions, largest first.
+ */
+public class GraphPartitioner {
+    private static final int MAX_REFINE_PASSES = 8; // Refinement passes per bisection
+    private static final double BALANCE_TOLERANCE = 0.1; // Allowed size difference between two halves, as a share of the agents
+
+    private final List<String> agentNames = new ArrayList<>(); // The agents, by index
+    private final List<Map<Integer, Integer>> adjacency = new ArrayList<>(); // Edge weight to each neighbour, by agent index
+    private final int[] partitionOf; // The partition of each agent
+    private final int partitionCount; // The number of partitions
+    private final int cutEdgeCount; // Agent-to-agent edges whose ends are in different partitions
+
+    // Partition the agents of a graph into the given number of partitions.
+    public GraphPartitioner(Graph graph, int partitionCount) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Partition count must be at least 1, got: " + partitionCount);
+        }
+        this.partitionCount = partitionCount;
+
+        // Link every publishing agent to the agents subscribed to its topics
+        Map<Node, Integer> indexOf = new HashMap<>();
+        for (Node node : graph) {
+            if (node.isAgent()) {
+                indexOf.put(node, agentNames.size());
+                agentNames.add(node.getName().substring(1));
+                adjacency.add(new HashMap<>());
+            }
+        }
+        for (Node node : graph) {
+            if (!node.isAgent()) {
+                continue;
+            }
+            int from = indexOf.get(node);
+            for (Node topic : node.getEdges()) {
+                for (Node subscriber : topic.getEdges()) {
+                    Integer to = indexOf.get(subscriber);
+                    if (to != null && to != from) {
+                        adjacency.get(from).merge(to, 1, Integer::sum);
+                        adjacency.get(to).merge(from, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        int n = agentNames.size();
+        int target = Math.max(1, (n + partitionCount - 1) / partitionCount); // Agents per partition when balanced
+        List<List<Integer>> pieces = new ArrayList<>();
+        for (List<Integer> component : components()) {
+            split(component, target, pieces);
+        }
+
+        // Pack the pieces into the partitions, largest first, each into the least loaded partition
+        pieces.sort((a, b) -> Integer.compare(b.size(), a.size()));
+        int[] load = new int[partitionCount];
+        this.partitionOf = new int[n];
+        for (List<Integer> piece : pieces) {
+            int lightest = 0;
+            for (int p = 1; p < partitionCount; p++) {
+                if (load[p] < load[lightest]) {
+                    lightest = p;
+                }
+            }
+            for (int agent : piece) {
+                partitionOf[agent] = lightest;
+            }
+            load[lightest] += piece.size();
+        }
+
+        int cut = 0;
+        for (int a = 0; a < n; a++) {
+            for (Map.Entry<Integer, Integer> edge : adjacency.get(a).entrySet()) {
+                if (edge.getKey() > a && partitionOf[edge.getKey()] != partitionOf[a]) {
+                    cut += edge.getValue();
+                }
+            }
+        }
+        this.cutEdgeCount = cut;
+    }
+
+    // Find the connected components of the agents
+    private List<List<Integer>> components() {
+        List<List<Integer>> components = new ArrayList<>();
+        boolean[] seen = new boolean[agentNames.size()];
+        for (int start = 0; start < seen.length; start++) {
+            if (!seen[start]) {
+                List<Integer> component = bfs(start, seen, Integer.MAX_VALUE, null);
+                components.add(component);
+            }
+        }
+        return components;
+    }
+
+    // Visit up to limit agents from a start agent, within the allowed agents (null = all), returns them in visiting order
+    private List<Integer> bfs(int start, boolean[] seen, int limit, boolean[] allowed) {
+        List<Integer> visited = new ArrayList<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        seen[start] = true;
+        queue.add(start);
+        while (!queue.isEmpty() && visited.size() < limit) {
+            int agent = queue.poll();
+            visited.add(agent);
+            for (int neighbour : adjacency.get(agent).keySet()) {
+                if (!seen[neighbour] && (allowed == null || allowed[neighbour])) {
+                    seen[neighbour] = true;
+                    queue.add(neighbour);
+                }
+            }
+        }
+        return visited;
+    }
+
+    // Cut a set of agents in halves until every piece fits in a partition
+    private void split(List<Integer> agents, int target, List<List<Integer>> pieces) {
+        if (agents.size() <= target) {
+            pieces.add(agents);
+            return;
+        }
+        boolean[] side = bisect(agents);
+        List<Integer> first = new ArrayList<>();
+        List<Integer> second = new ArrayList<>();
+        for (int agent : agents) {
+            (side[agent] ? second : first).add(agent);
+        }
+        split(first, target, pieces);
+        split(second, target, pieces);
+    }
+
+    // Cut a set of agents in two balanced halves with few edges between them, returns true for the agents of the second half
+    private boolean[] bisect(List<Integer> agents) {
+        int n = agentNames.size();
+        boolean[] member = new boolean[n];
+        for (int agent : agents) {
+            member[agent] = true;
+        }
+
+        // Grow the first half from a peripheral agent, so it is compact
+        int start = farthest(agents.get(0), member);
+        boolean[] seen = new boolean[n];
+        List<Integer> grown = bfs(start, seen, agents.size() / 2, member);
+        boolean[] side = new boolean[n];
+        Arrays.fill(side, true);
+        for (int agent : grown) {
+            side[agent] = false;
+        }
+        int firstSize = grown.size();
+        for (int agent : agents) { // Agents the search did not reach (should not happen in a component)
+            if (side[agent] && firstSize < agents.size() / 2) {
+                side[agent] = false;
+                firstSize++;
+            }
+        }
+
+        int tolerance = Math.max(1, (int) (agents.size() * BALANCE_TOLERANCE));
+        for (int pass = 0; pass < MAX_REFINE_PASSES; pass++) {
+            if (!refine(agents, member, side, tolerance)) {
+                break;
+            }
+        }
+        return side;
+    }
+
+    // Find the agent farthest from a start agent, within the allowed agents
+    private int farthest(int start, boolean[] allowed) {
+        List<Integer> order = bfs(start, new boolean[agentNames.size()], Integer.MAX_VALUE, allowed);
+        return order.get(order.size() - 1);
+    }
+
+    // Run one Fiduccia-Mattheyses pass: move agents across the cut one at a time (best gain first, each once),
+    // then keep the prefix of the moves that made the cut smallest. Returns false if the cut did not improve.
+    private boolean refine(List<Integer> agents, boolean[] member, boolean[] side, int tolerance) {
+        int n = agentNames.size();
+        int[] gain = new int[n]; // How much the cut shrinks if the agent changes sides
+        int secondSize = 0;
+        for (int agent : agents) {
+            gain[agent] = gainOf(agent, member, side);
+            if (side[agent]) {
+                secondSize++;
+            }
+        }
+        int half = agents.size() / 2;
+
+        boolean[] locked = new boolean[n];
+        List<Integer> moves = new ArrayList<>();
+        int total = 0;
+        int best = 0;
+        int bestMoves = 0;
+        for (int step = 0; step < agents.size(); step++) {
+            int chosen = -1;
+            for (int agent : agents) {
+                if (locked[agent]) {
+                    continue;
+                }
+                int newSecond = secondSize + (side[agent] ? -1 : 1);
+                if (Math.abs(newSecond - (agents.size() - half)) > tolerance) { // Would unbalance the halves
+                    continue;
+                }
+                if (chosen < 0 || gain[agent] > gain[chosen]) {
+                    chosen = agent;
+                }
+            }
+            if (chosen < 0) {
+                break;
+            }
+            total += gain[chosen];
+            side[chosen] = !side[chosen];
+            secondSize += side[chosen] ? 1 : -1;
+            locked[chosen] = true;
+            moves.add(chosen);
+            gain[chosen] = -gain[chosen];
+            for (Map.Entry<Integer, Integer> edge : adjacency.get(chosen).entrySet()) {
+                int neighbour = edge.getKey();
+                if (member[neighbour] && !locked[neighbour]) {
+                    gain[neighbour] = gainOf(neighbour, member, side);
+                }
+            }
+            if (total > best) {
+                best = total;
+                bestMoves = moves.size();
+            }
+        }
+        for (int i = moves.size() - 1; i >= bestMoves; i--) { // Undo the moves after the best point
+            int agent = moves.get(i);
+            side[agent] = !side[agent];
+        }
+        return best > 0;
+    }
+
+    // Compute how much the cut shrinks if an agent changes sides: its edges to the other side minus its edges to its own side
+    private int gainOf(int agent, boolean[] member, boolean[] side) {
+        int gain = 0;
+        for (Map.Entry<Integer, Integer> edge : adjacency.get(agent).entrySet()) {
+            if (member[edge.getKey()]) {
+                gain += side[edge.getKey()] != side[agent] ? edge.getValue() : -edge.getValue();
+            }
+        }
+        return gain;
+    }
+
+    // Get the partition of an agent, or -1 if the agent is not part of the graph
+    public int getPartition(String agentName) {
+        int index = agentNames.indexOf(agentName);
+        return index >= 0 ? partitionOf[index] : -1;
+    }
+
+    // Get the partition of every agent, by agent name
+    public Map<String, Integer> getPartitionMap() {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < agentNames.size(); i++) {
+            map.put(agentNames.get(i), partitionOf[i]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    // Get the number of partitions
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    // Get the number of agent-to-agent edges that cross partitions
+    public int getCutEdgeCount() {
+        return cutEdgeCount;
+    }
+}
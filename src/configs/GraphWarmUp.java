@@ -0,0 +1,182 @@
+package configs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import graph.Agent;
+import graph.LatencyStats;
+import graph.Message;
+import graph.TopicManagerSingleton;
+
+/**
+ * Warms the JIT up for a configuration before it goes live.
+ * A shadow copy of the graph is built from new instances of the agents' classes, wired to shadow
+ * topics whose names carry a prefix, so the real topics never see the synthetic values. Varying
+ * values are published on the shadow source topics until enough passes ran or the time is up,
+ * which gets Topic.publish, Message and the agent callbacks compiled. The latency of a pass over
+ * all the source topics is measured on the first and on the last passes. The shadow agents and
+ * topics are removed afterwards.
+ */
+public class GraphWarmUp {
+    private static final Logger LOGGER = Logger.getLogger(GraphWarmUp.class.getName());
+    private static final String PREFIX = TopicManagerSingleton.SHADOW_PREFIX + "WARMUP__"; // Prefix of the shadow topic names
+    private static final int SAMPLE_PASSES = 50; // Passes measured before and after the warm-up
+
+    private final List<Agent> shadows = new ArrayList<>(); // The agents of the shadow copy
+    private final Set<String> shadowTopics = new LinkedHashSet<>(); // The topics of the shadow copy
+    private final List<String> sources = new ArrayList<>(); // The shadow topics no shadow agent publishes on
+    private final LatencyStats cold = new LatencyStats(); // Latency of the first passes
+    private final LatencyStats warm = new LatencyStats(); // Latency of the last passes
+    private long passes = 0; // Passes run
+    private long elapsedNanos = 0; // Time the warm-up took
+
+    // Plan the warm-up of the agents of a configuration; agents, subs and pubs are parallel lists (one entry per agent).
+    public GraphWarmUp(List<Agent> agents, List<String[]> subs, List<String[]> pubs) {
+        if (agents == null || subs == null || pubs == null || agents.size() != subs.size() || agents.size() != pubs.size()) {
+            throw new IllegalArgumentException("Agents, subs and pubs must be non-null lists of the same size");
+        }
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < agents.size(); i++) {
+            all.add(i);
+        }
+        if (SubgraphCompiler.topologicalOrder(all, subs, pubs) == null) {
+            throw new IllegalArgumentException("Cannot warm up a graph with a cycle");
+        }
+        Set<String> written = new LinkedHashSet<>(); // Shadow topics some shadow agent publishes on
+        for (String[] topics : pubs) {
+            for (String topic : topics) {
+                written.add(shadowName(topic));
+            }
+        }
+        for (String[] topics : subs) {
+            for (String topic : topics) {
+                String name = shadowName(topic);
+                if (!written.contains(name) && !sources.contains(name)) {
+                    sources.add(name);
+                }
+            }
+        }
+        for (int i = 0; i < agents.size(); i++) {
+            shadowTopics.addAll(shadowNames(subs.get(i)));
+            shadowTopics.addAll(shadowNames(pubs.get(i)));
+        }
+        try {
+            for (int i = 0; i < agents.size(); i++) {
+                Agent agent = agents.get(i);
+                shadows.add(agent.getClass().getConstructor(String.class, String[].class, String[].class)
+                    .newInstance(agent.getName(), shadowNames(subs.get(i)).toArray(new String[0]),
+                        shadowNames(pubs.get(i)).toArray(new String[0])));
+            }
+        } catch (Exception e) {
+            close();
+            throw new IllegalArgumentException("Cannot create a shadow copy of the graph: " + e.getMessage(), e);
+        }
+    }
+
+    // Get the shadow name of a topic
+    private static String shadowName(String topic) {
+        return PREFIX + topic.trim().toUpperCase();
+    }
+
+    // Get the shadow names of topics
+    private static List<String> shadowNames(String[] topics) {
+        List<String> names = new ArrayList<>();
+        for (String topic : topics) {
+            names.add(shadowName(topic));
+        }
+        return names;
+    }
+
+    // Run passes until the given number ran or the time is up (0 = no limit of that kind), then remove the shadow copy.
+    public void run(long iterations, long maxMillis) {
+        if (iterations < 0 || maxMillis < 0) {
+            throw new IllegalArgumentException("Warm-up iterations and time cannot be negative: " + iterations + ", " + maxMillis);
+        }
+        if (iterations == 0 && maxMillis == 0) {
+            throw new IllegalArgumentException("Warm-up needs a number of iterations or a time limit");
+        }
+        long start = System.nanoTime();
+        long deadline = maxMillis == 0 ? Long.MAX_VALUE : start + maxMillis * 1_000_000L;
+        try {
+            for (int i = 0; i < SAMPLE_PASSES; i++) {
+                cold.record(pass());
+            }
+            while ((iterations == 0 || passes < iterations) && System.nanoTime() < deadline) {
+                pass();
+            }
+            for (int i = 0; i < SAMPLE_PASSES; i++) {
+                warm.record(pass());
+            }
+        } finally {
+            elapsedNanos = System.nanoTime() - start;
+            close();
+        }
+    }
+
+    // Publish a new value on every shadow source topic, returns how long it took
+    private long pass() {
+        long start = System.nanoTime();
+        for (int i = 0; i < sources.size(); i++) {
+            double value = (passes * 31 + i * 7) % 1000 + 0.5; // Varying values, so no value-based shortcut is taken
+            TopicManagerSingleton.get().getTopic(sources.get(i)).publish(new Message(value));
+        }
+        passes++;
+        return System.nanoTime() - start;
+    }
+
+    // Close the shadow agents and remove the shadow topics
+    private void close() {
+        for (Agent shadow : shadows) {
+            try {
+                shadow.close();
+            } catch (Exception e) {
+                // Continue closing the other agents even if one fails
+            }
+        }
+        shadows.clear();
+        for (String topic : shadowTopics) {
+            TopicManagerSingleton.get().removeTopic(topic);
+        }
+    }
+
+    // Get the latency of the passes measured before the warm-up
+    public LatencyStats getColdLatency() {
+        return cold;
+    }
+
+    // Get the latency of the passes measured after the warm-up
+    public LatencyStats getWarmLatency() {
+        return warm;
+    }
+
+    // Get the number of passes run, measured ones included
+    public long getPasses() {
+        return passes;
+    }
+
+    // Get the time the warm-up took, in milliseconds
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    // Get the report of the warm-up
+    public String getReport() {
+        return String.format("Warm-up: %d passes over %d source topics in %d ms, pass latency p50 %.1fus -> %.1fus, max %.1fus -> %.1fus",
+            passes, sources.size(), getElapsedMillis(), cold.getPercentileNanos(0.5) / 1e3, warm.getPercentileNanos(0.5) / 1e3,
+            cold.getMaxNanos() / 1e3, warm.getMaxNanos() / 1e3);
+    }
+
+    // Log the report of the warm-up
+    public void logReport() {
+        LOGGER.info(getReport());
+    }
+
+    // Get the string representation of the warm-up
+    @Override
+    public String toString() {
+        return "GraphWarmUp{passes=" + passes + ", cold=" + cold + ", warm=" + warm + "}";
+    }
+}
@@ -0,0 +1,117 @@
+package configs;
+
+import graph.Agent;
+import graph.Message;
+import graph.Topic;
+import graph.TopicManagerSingleton;
+
+/**
+ * An arithmetic agent that keeps its inputs per key instead of in fields.
+ * One definition serves any number of entities: a message carries the key of its entity, the
+ * inputs of every key live in a primitive hash table, and the result is published with the
+ * same key. The state is split by key over the shards of a KeyedExecutor, one table per shard.
+ */
+public class KeyedAgent implements Agent {
+    private static final int EXPECTED_KEYS_PER_SHARD = 1024; // Initial room of every state table
+
+    private final String name; // The name of the agent
+    private final ArithmeticOp op; // The operation applied to the inputs of a key
+    private final KeyedExecutor executor; // The shard threads
+    private final Topic[] inputs; // The input topics, in operand order
+    private final Topic output; // The output topic
+    private final KeyedStateTable[] tables; // The inputs of every key, one table per shard
+
+    // Create a keyed agent for an operation and subscribe it to its input topics.
+    public KeyedAgent(String name, ArithmeticOp op, String[] subs, String[] pubs, KeyedExecutor executor) {
+        if (name == null || op == null || subs == null || pubs == null || executor == null) {
+            throw new IllegalArgumentException("Keyed agent arguments cannot be null");
+        }
+        if (subs.length < op.getArity() || pubs.length < 1) {
+            throw new IllegalArgumentException("Keyed agent " + name + " needs " + op.getArity() + " input(s) and an output");
+        }
+        this.name = name;
+        this.op = op;
+        this.executor = executor;
+        this.inputs = new Topic[op.getArity()];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = TopicManagerSingleton.get().getTopic(subs[i]);
+        }
+        this.output = TopicManagerSingleton.get().getTopic(pubs[0]);
+        this.tables = new KeyedStateTable[executor.getShardCount()];
+        for (int s = 0; s < tables.length; s++) {
+            tables[s] = new KeyedStateTable(op.getArity(), EXPECTED_KEYS_PER_SHARD);
+        }
+        output.addPublisher(this);
+        for (Topic input : inputs) {
+            input.subscribe(this);
+        }
+    }
+
+    // Called when a message is received on a subscribed topic: hand it to the shard of its key
+    @Override
+    public void callback(String topic, Message msg) {
+        executor.execute(executor.shardOf(msg.key), this, topic, msg);
+    }
+
+    // Update the inputs of the message's key and publish the result, on the thread of the shard
+    void handle(int shard, String topic, Message msg) {
+        KeyedStateTable table = tables[shard];
+        int row = table.rowOf(msg.key);
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i].name.equals(topic)) {
+                table.set(row, i, msg.asDouble); // A NaN is kept too, like the agents store it
+                break;
+            }
+        }
+        double x = table.get(row, 0);
+        double y = inputs.length > 1 ? table.get(row, 1) : 0;
+        if (!Double.isNaN(x) && !Double.isNaN(y)) { // Like the agents, nothing is published while an input of the key is NaN
+            output.publish(new Message(op.apply(x, y), msg.key));
+        }
+    }
+
+    // Get the number of keys with state
+    public int getKeyCount() {
+        int count = 0;
+        for (KeyedStateTable table : tables) {
+            count += table.size();
+        }
+        return count;
+    }
+
+    // Get the memory taken by the state tables, in bytes
+    public long getStateBytes() {
+        long bytes = 0;
+        for (KeyedStateTable table : tables) {
+            bytes += table.getMemoryBytes();
+        }
+        return bytes;
+    }
+
+    // Get the operation of the agent
+    public ArithmeticOp getOp() {
+        return op;
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    // Forget the state of every key (on the shard threads, which own the tables)
+    @Override
+    public void reset() {
+        for (int s = 0; s < tables.length; s++) {
+            executor.execute(s, tables[s]::clear);
+        }
+    }
+
+    // Close the agent
+    @Override
+    public void close() {
+        for (Topic input : inputs) {
+            input.unsubscribe(this);
+        }
+    }
+}
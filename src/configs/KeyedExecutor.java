@@ -0,0 +1,104 @@
+package configs;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import graph.Epoch;
+import graph.Message;
+
+/**
+ * Runs the keyed agents of a configuration on a fixed set of shard threads.
+ * Every key is hashed to one shard, so all the messages of a key are handled in order on one
+ * thread, and each shard only touches its own part of the agents' state, without locks.
+ * A message published on the thread of its key's shard (the usual case, as keyed agents keep
+ * the key of their input) is handled by a direct call.
+ */
+public class KeyedExecutor {
+    private final ExecutorService[] shards; // The single-threaded executor of every shard
+    private final ThreadLocal<Integer> currentShard = ThreadLocal.withInitial(() -> -1); // The shard of the current thread
+    private final LongAdder localCount = new LongAdder(); // Messages handled by a direct call
+    private final LongAdder queuedCount = new LongAdder(); // Messages handed to the thread of their shard
+
+    // Create an executor with the given number of shard threads.
+    public KeyedExecutor(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1, got: " + shardCount);
+        }
+        this.shards = new ExecutorService[shardCount];
+        for (int s = 0; s < shardCount; s++) {
+            final int shard = s;
+            shards[s] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(() -> {
+                    currentShard.set(shard);
+                    r.run();
+                }, "KeyShard-" + shard);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // Get the shard of a key
+    public int shardOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; // The state tables take the top bits of the same hash, so use the bottom ones
+        h ^= h >>> 29;
+        return (int) ((h & Long.MAX_VALUE) % shards.length);
+    }
+
+    // Run a message handler on the thread of the key's shard
+    void execute(int shard, KeyedAgent agent, String topic, Message msg) {
+        if (currentShard.get() == shard) { // Same thread: handle the message directly
+            localCount.increment();
+            agent.handle(shard, topic, msg);
+            return;
+        }
+        queuedCount.increment();
+        try {
+            shards[shard].execute(() -> {
+                Epoch previous = Epoch.enter(msg.epoch); // Messages the agent creates inherit the epoch
+                try {
+                    agent.handle(shard, topic, msg);
+                } catch (Exception e) {
+                    // Continue with the next message even if this one fails
+                } finally {
+                    Epoch.exit(previous);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The executor was closed, the message is dropped
+        }
+    }
+
+    // Run a task on the thread of a shard (used to touch the state of the shard from outside)
+    void execute(int shard, Runnable task) {
+        try {
+            shards[shard].execute(task);
+        } catch (RejectedExecutionException e) {
+            // The executor was closed
+        }
+    }
+
+    // Get the number of shards
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Get the number of messages handled by a direct call on the thread of their shard
+    public long getLocalMessageCount() {
+        return localCount.sum();
+    }
+
+    // Get the number of messages handed to the thread of their shard
+    public long getQueuedMessageCount() {
+        return queuedCount.sum();
+    }
+
+    // Stop the shard threads
+    public void close() {
+        for (ExecutorService shard : shards) {
+            shard.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package configs;
+
+/**
+ * The state of a keyed agent: a fixed number of doubles per key, in an open-addressing hash
+ * table with linear probing over primitive arrays.
+ * No object is created per key, so a key costs (8 + 8 * width + 1) bytes divided by the
+ * load factor. The table is not thread-safe; every worker of a keyed agent owns its own.
+ */
+public final class KeyedStateTable {
+    private static final double MAX_LOAD = 0.75; // Share of used rows above which the table doubles
+    private static final long MIX = 0x9E3779B97F4A7C15L; // Fibonacci hashing multiplier
+
+    private final int width; // Doubles of state per key
+    private long[] keys; // The key of every row
+    private boolean[] used; // Whether a row holds a key
+    private double[] values; // The state of every row, width doubles per row
+    private int shift; // 64 minus log2 of the capacity, to take the top bits of the hash
+    private int size = 0; // Number of keys
+    private int resizeAt; // Number of keys at which the table doubles
+
+    // Create a table with the given state width and room for at least the given number of keys.
+    public KeyedStateTable(int width, int expectedKeys) {
+        if (width < 1) {
+            throw new IllegalArgumentException("State width must be at least 1, got: " + width);
+        }
+        if (expectedKeys < 0) {
+            throw new IllegalArgumentException("Expected key count cannot be negative: " + expectedKeys);
+        }
+        this.width = width;
+        int capacity = 16;
+        while (capacity * MAX_LOAD < expectedKeys) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    // Allocate empty arrays for the given capacity (a power of two)
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        values = new double[capacity * width];
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        resizeAt = (int) (capacity * MAX_LOAD);
+    }
+
+    // Get the home row of a key
+    private int homeOf(long key) {
+        return (int) ((key * MIX) >>> shift);
+    }
+
+    // Get the row of a key, adding it with zero state if it is not in the table yet.
+    // Rows move when the table grows, so a row is only valid until the next call.
+    public int rowOf(long key) {
+        int mask = keys.length - 1;
+        int row = homeOf(key);
+        while (used[row]) {
+            if (keys[row] == key) {
+                return row;
+            }
+            row = (row + 1) & mask;
+        }
+        if (size >= resizeAt) {
+            grow();
+            return rowOf(key);
+        }
+        used[row] = true;
+        keys[row] = key;
+        size++;
+        return row;
+    }
+
+    // Check if a key is in the table
+    public boolean contains(long key) {
+        int mask = keys.length - 1;
+        for (int row = homeOf(key); used[row]; row = (row + 1) & mask) {
+            if (keys[row] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Double the capacity and move every key to its new row
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        double[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int row = homeOf(oldKeys[i]);
+                while (used[row]) {
+                    row = (row + 1) & mask;
+                }
+                used[row] = true;
+                keys[row] = oldKeys[i];
+                System.arraycopy(oldValues, i * width, values, row * width, width);
+            }
+        }
+    }
+
+    // Get one value of the state of a row
+    public double get(int row, int column) {
+        return values[row * width + column];
+    }
+
+    // Set one value of the state of a row
+    public void set(int row, int column, double value) {
+        values[row * width + column] = value;
+    }
+
+    // Remove every key
+    public void clear() {
+        allocate(16);
+        size = 0;
+    }
+
+    // Get the number of keys
+    public int size() {
+        return size;
+    }
+
+    // Get the number of rows
+    public int capacity() {
+        return keys.length;
+    }
+
+    // Get the memory taken by the arrays of the table, in bytes
+    public long getMemoryBytes() {
+        return (long) keys.length * (Long.BYTES + 1 + (long) width * Double.BYTES);
+    }
+}
@@ -0,0 +1,188 @@
+package configs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import graph.Agent;
+import graph.Epoch;
+import graph.Message;
+import graph.Topic;
+import graph.TopicManagerSingleton;
+
+/**
+ * Demand-driven evaluation of a configuration.
+ * A publish only records the new input and marks the downstream topics dirty. The agents
+ * run when a dirty topic is read (through Topic.getLatestMessage), pulling their own inputs
+ * first, and the result stays memoized until the next invalidation. Topics that have a
+ * subscriber outside of this evaluator are refreshed as soon as they become dirty, but only once
+ * no refresh is running on the thread, so refresh locks are only ever taken from downstream to upstream.
+ */
+public class LazyEvaluator {
+    private static final ThreadLocal<Integer> REFRESH_DEPTH = ThreadLocal.withInitial(() -> 0); // Refreshes running on this thread
+    private static final ThreadLocal<Deque<Topic>> OBSERVED = ThreadLocal.withInitial(ArrayDeque::new); // Observed topics to refresh once they are done
+
+    private final Map<String, List<LazyAgent>> publishersByTopic = new HashMap<>(); // The lazy agents publishing each topic
+    private final Map<String, List<LazyAgent>> subscribersByTopic = new HashMap<>(); // The lazy agents subscribed to each topic
+
+    // Wrap an agent so it only runs when one of its output topics is read.
+    public Agent bind(Agent agent, String[] subs, String[] pubs) {
+        if (agent == null) {
+            throw new IllegalArgumentException("Agent cannot be null");
+        }
+        LazyAgent lazy = new LazyAgent(agent, topicsOf(subs), topicsOf(pubs));
+        for (Topic topic : lazy.inputs) {
+            subscribersByTopic.computeIfAbsent(topic.name, name -> new ArrayList<>()).add(lazy);
+        }
+        for (Topic topic : lazy.outputs) {
+            publishersByTopic.computeIfAbsent(topic.name, name -> new ArrayList<>()).add(lazy);
+        }
+        return lazy;
+    }
+
+    // Install the refreshers on the derived topics, once every agent is bound.
+    public void install() {
+        for (Map.Entry<String, List<LazyAgent>> entry : publishersByTopic.entrySet()) {
+            List<LazyAgent> publishers = entry.getValue();
+            TopicManagerSingleton.get().getTopic(entry.getKey()).setRefresher(() -> {
+                for (LazyAgent publisher : publishers) {
+                    publisher.refresh();
+                }
+            });
+        }
+    }
+
+    // Remove the refreshers from the topics.
+    public void close() {
+        for (String topicName : publishersByTopic.keySet()) {
+            if (TopicManagerSingleton.get().hasTopic(topicName)) {
+                TopicManagerSingleton.get().getTopic(topicName).setRefresher(null);
+            }
+        }
+    }
+
+    // Look up the topics with the given names
+    private static Topic[] topicsOf(String[] names) {
+        Topic[] topics = new Topic[names.length];
+        for (int i = 0; i < names.length; i++) {
+            topics[i] = TopicManagerSingleton.get().getTopic(names[i]);
+        }
+        return topics;
+    }
+
+    // Mark a topic and everything downstream of it dirty
+    private void invalidate(Topic topic) {
+        if (!topic.invalidate()) { // Already dirty, so everything downstream is dirty too
+            return;
+        }
+        boolean observed = topic.hasSubscriptions(); // Whether the topic has a subscriber outside of this evaluator
+        for (Agent subscriber : topic.getSubscribers()) {
+            if (subscriber instanceof LazyAgent) {
+                for (Topic output : ((LazyAgent) subscriber).outputs) {
+                    invalidate(output);
+                }
+            } else {
+                observed = true;
+            }
+        }
+        if (observed) { // An eager subscriber wants every value, compute it once no refresh lock is held
+            OBSERVED.get().add(topic);
+        }
+    }
+
+    // Refresh the observed topics that became dirty, unless a refresh is running on this thread (it does it when done)
+    private static void refreshObserved() {
+        if (REFRESH_DEPTH.get() > 0) {
+            return;
+        }
+        Deque<Topic> observed = OBSERVED.get();
+        Topic topic;
+        while ((topic = observed.poll()) != null) {
+            topic.getLatestMessage();
+        }
+    }
+
+    // An agent that records its inputs and only runs when its output is read
+    private final class LazyAgent implements Agent {
+        private final Agent agent; // The wrapped agent
+        private final Topic[] inputs; // The input topics
+        private final Topic[] outputs; // The output topics
+        private final LinkedHashMap<String, Message> pending = new LinkedHashMap<>(); // Inputs received since the last run, by topic
+        private final Object refreshLock = new Object(); // Serializes the runs of the agent
+
+        LazyAgent(Agent agent, Topic[] inputs, Topic[] outputs) {
+            this.agent = agent;
+            this.inputs = inputs;
+            this.outputs = outputs;
+        }
+
+        // Called when a message is received on a subscribed topic
+        @Override
+        public void callback(String topic, Message msg) {
+            synchronized (pending) {
+                pending.put(topic, msg); // Only the latest value of each input matters
+            }
+            for (Topic output : outputs) {
+                invalidate(output);
+            }
+            refreshObserved();
+        }
+
+        // Bring the outputs up to date: pull the inputs, then run the agent on what changed
+        void refresh() {
+            REFRESH_DEPTH.set(REFRESH_DEPTH.get() + 1);
+            try {
+                synchronized (refreshLock) {
+                    for (Topic input : inputs) {
+                        input.getLatestMessage(); // Refreshes the input first if it is dirty
+                    }
+                    List<Map.Entry<String, Message>> changed;
+                    synchronized (pending) {
+                        changed = new ArrayList<>(pending.entrySet());
+                        pending.clear();
+                    }
+                    int remaining = changed.size();
+                    for (Map.Entry<String, Message> input : changed) {
+                        try {
+                            if (--remaining > 0) { // One run per read: only the last input publishes
+                                Epoch.deliverMuted(agent, input.getKey(), input.getValue());
+                            } else {
+                                Epoch.deliver(agent, input.getKey(), input.getValue());
+                            }
+                        } catch (Exception e) {
+                            // Continue with the other inputs even if one fails
+                        }
+                    }
+                }
+            } finally {
+                REFRESH_DEPTH.set(REFRESH_DEPTH.get() - 1);
+            }
+            refreshObserved();
+        }
+
+        // Get the name of the agent
+        @Override
+        public String getName() {
+            return agent.getName();
+        }
+
+        // Reset the agent
+        @Override
+        public void reset() {
+            synchronized (pending) {
+                pending.clear();
+            }
+            agent.reset();
+        }
+
+        // Close the agent
+        @Override
+        public void close() {
+            agent.close();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package configs;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import graph.Agent;
+import graph.Epoch;
+import graph.Message;
+
+/**
+ * Runs every partition of a graph on its own single thread.
+ * A message published on a partition's thread to an agent of the same partition is a direct
+ * call; only messages crossing partitions (and messages from outside of the graph) go
+ * through the queue of the target partition's thread.
+ */
+public class PartitionExecutor {
+    private final GraphPartitioner partitioner; // The partition of every agent
+    private final ExecutorService[] executors; // The single-threaded executor of every partition
+    private final ThreadLocal<Integer> currentPartition = ThreadLocal.withInitial(() -> -1); // The partition of the current thread
+    private final LongAdder localCount = new LongAdder(); // Messages delivered by a direct call
+    private final LongAdder crossCount = new LongAdder(); // Messages that crossed from one partition to another
+    private final LongAdder externalCount = new LongAdder(); // Messages published from outside of the partitions
+    private final long startNanos = System.nanoTime(); // When the executor started, for the rates
+
+    // Create the executor of a partitioned graph.
+    public PartitionExecutor(GraphPartitioner partitioner) {
+        if (partitioner == null) {
+            throw new IllegalArgumentException("Partitioner cannot be null");
+        }
+        this.partitioner = partitioner;
+        this.executors = new ExecutorService[partitioner.getPartitionCount()];
+        for (int p = 0; p < executors.length; p++) {
+            final int partition = p;
+            executors[p] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(() -> {
+                    currentPartition.set(partition);
+                    r.run();
+                }, "Partition-" + partition);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // Wrap an agent so it runs on the thread of its partition.
+    public Agent bind(Agent agent) {
+        if (agent == null) {
+            throw new IllegalArgumentException("Agent cannot be null");
+        }
+        return new PartitionAgent(agent, Math.max(0, partitioner.getPartition(agent.getName())));
+    }
+
+    // Get the partition of every agent, by agent name
+    public Map<String, Integer> getPartitionMap() {
+        return partitioner.getPartitionMap();
+    }
+
+    // Get the number of messages delivered by a direct call on the partition's own thread
+    public long getLocalMessageCount() {
+        return localCount.sum();
+    }
+
+    // Get the number of messages that crossed from one partition to another
+    public long getCrossPartitionMessageCount() {
+        return crossCount.sum();
+    }
+
+    // Get the number of messages published from outside of the partitions
+    public long getExternalMessageCount() {
+        return externalCount.sum();
+    }
+
+    // Get the number of cross-partition messages per second since the executor started
+    public double getCrossPartitionMessageRate() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? crossCount.sum() / seconds : 0;
+    }
+
+    // Get the partitioner
+    public GraphPartitioner getPartitioner() {
+        return partitioner;
+    }
+
+    // Stop the partition threads
+    public void close() {
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    // An agent whose messages are handled on the thread of its partition
+    private final class PartitionAgent implements Agent {
+        private final Agent agent; // The wrapped agent
+        private final int partition; // The partition of the agent
+
+        PartitionAgent(Agent agent, int partition) {
+            this.agent = agent;
+            this.partition = partition;
+        }
+
+        // Called when a message is received on a subscribed topic
+        @Override
+        public void callback(String topic, Message msg) {
+            int current = currentPartition.get();
+            if (current == partition) { // Same thread: call the agent directly
+                localCount.increment();
+                Epoch.deliver(agent, topic, msg);
+                return;
+            }
+            (current >= 0 ? crossCount : externalCount).increment();
+            try {
+                executors[partition].execute(() -> {
+                    try {
+                        Epoch.deliver(agent, topic, msg);
+                    } catch (Exception e) {
+                        // Continue with the next message even if this one fails
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The executor was closed, the message is dropped
+            }
+        }
+
+        // Get the name of the agent
+        @Override
+        public String getName() {
+            return agent.getName();
+        }
+
+        // Reset the agent
+        @Override
+        public void reset() {
+            agent.reset();
+        }
+
+        // Close the agent
+        @Override
+        public void close() {
+            agent.close();
+        }
+    }
+}
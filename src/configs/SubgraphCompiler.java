@@ -0,0 +1,237 @@
+package configs;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import graph.Agent;
+
+/**
+ * Compiles the connected subgraphs made only of pure arithmetic agents into single functions.
+ * Every topic of a subgraph gets a slot in a double[], and the agents become one MethodHandle
+ * tree that reads the source slots and writes every derived slot in topological order, with no
+ * Message allocated and no interface call between the agents.
+ */
+public class SubgraphCompiler {
+    private static final MethodHandle GET = MethodHandles.arrayElementGetter(double[].class); // (double[],int)double
+    private static final MethodHandle SET = MethodHandles.arrayElementSetter(double[].class); // (double[],int,double)void
+
+    // Compile the subgraphs of a configuration; agents, subs and pubs are parallel lists (one entry per agent).
+    public static List<CompiledSubgraph> compile(List<Agent> agents, List<String[]> subs, List<String[]> pubs) {
+        if (agents == null || subs == null || pubs == null || agents.size() != subs.size() || agents.size() != pubs.size()) {
+            throw new IllegalArgumentException("Agents, subs and pubs must be non-null lists of the same size");
+        }
+
+        Map<String, Integer> writers = new HashMap<>(); // Number of agents publishing each topic
+        for (String[] agentPubs : pubs) {
+            for (String pub : agentPubs) {
+                writers.merge(normalize(pub), 1, Integer::sum);
+            }
+        }
+
+        // Group the compilable agents into subgraphs, joined by the topics they share
+        int[] parent = new int[agents.size()];
+        Map<String, Integer> firstByTopic = new HashMap<>(); // The first compilable agent touching each topic
+        for (int i = 0; i < agents.size(); i++) {
+            parent[i] = i;
+            if (!isCompilable(agents.get(i), subs.get(i), pubs.get(i), writers)) {
+                parent[i] = -1;
+                continue;
+            }
+            for (String topic : topicsOf(subs.get(i), pubs.get(i))) {
+                Integer other = firstByTopic.putIfAbsent(topic, i);
+                if (other != null) {
+                    parent[find(parent, i)] = find(parent, other);
+                }
+            }
+        }
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>(); // Agent indexes of each subgraph, by root
+        for (int i = 0; i < agents.size(); i++) {
+            if (parent[i] >= 0) {
+                groups.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<CompiledSubgraph> compiled = new ArrayList<>();
+        for (List<Integer> group : groups.values()) {
+            List<Integer> order = topologicalOrder(group, subs, pubs);
+            if (order != null) { // Subgraphs with a cycle are left to their agents
+                List<Agent> replaced = new ArrayList<>();
+                for (int i : order) {
+                    replaced.add(agents.get(i));
+                }
+                compiled.add(new CompiledSubgraph("CompiledSubgraph" + (compiled.size() + 1), build(order, agents, subs, pubs), replaced));
+            }
+        }
+        return compiled;
+    }
+
+    // Compile all the agents of a configuration into one function; every agent must be a pure arithmetic agent.
+    public static CompiledGraph compileGraph(List<Agent> agents, List<String[]> subs, List<String[]> pubs) {
+        if (agents == null || subs == null || pubs == null || agents.size() != subs.size() || agents.size() != pubs.size()) {
+            throw new IllegalArgumentException("Agents, subs and pubs must be non-null lists of the same size");
+        }
+        Map<String, Integer> writers = new HashMap<>(); // Number of agents publishing each topic
+        for (String[] agentPubs : pubs) {
+            for (String pub : agentPubs) {
+                writers.merge(normalize(pub), 1, Integer::sum);
+            }
+        }
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < agents.size(); i++) {
+            if (!isCompilable(agents.get(i), subs.get(i), pubs.get(i), writers)) {
+                throw new IllegalArgumentException("Agent " + agents.get(i).getName() + " cannot be compiled");
+            }
+            all.add(i);
+        }
+        List<Integer> order = topologicalOrder(all, subs, pubs);
+        if (order == null) {
+            throw new IllegalArgumentException("Cannot compile a graph with a cycle");
+        }
+        return build(order, agents, subs, pubs);
+    }
+
+    // Check if an agent can be compiled: a known operation with the matching inputs, publishing a topic nobody else publishes
+    private static boolean isCompilable(Agent agent, String[] agentSubs, String[] agentPubs, Map<String, Integer> writers) {
+        ArithmeticOp op = ArithmeticOp.of(agent);
+        if (op == null || agentSubs.length != op.getArity() || agentPubs.length != 1) {
+            return false;
+        }
+        return writers.get(normalize(agentPubs[0])) == 1;
+    }
+
+    // Order the agents of a subgraph so every agent comes after the agents publishing its inputs, or null on a cycle
+    static List<Integer> topologicalOrder(List<Integer> group, List<String[]> subs, List<String[]> pubs) {
+        Map<String, Integer> publisherOf = new HashMap<>(); // The agent of the subgraph publishing each topic
+        for (int i : group) {
+            publisherOf.put(normalize(pubs.get(i)[0]), i);
+        }
+        Map<Integer, Integer> inDegree = new HashMap<>();
+        Map<Integer, List<Integer>> next = new HashMap<>();
+        for (int i : group) {
+            inDegree.putIfAbsent(i, 0);
+            for (String sub : subs.get(i)) {
+                Integer upstream = publisherOf.get(normalize(sub));
+                if (upstream != null) {
+                    inDegree.merge(i, 1, Integer::sum);
+                    next.computeIfAbsent(upstream, u -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        ArrayDeque<Integer> ready = new ArrayDeque<>();
+        for (int i : group) {
+            if (inDegree.get(i) == 0) {
+                ready.add(i);
+            }
+        }
+        List<Integer> order = new ArrayList<>();
+        while (!ready.isEmpty()) { // Kahn's algorithm
+            int i = ready.poll();
+            order.add(i);
+            for (int j : next.getOrDefault(i, List.of())) {
+                if (inDegree.merge(j, -1, Integer::sum) == 0) {
+                    ready.add(j);
+                }
+            }
+        }
+        return order.size() == group.size() ? order : null;
+    }
+
+    // Build the compiled function of a subgraph whose agents are in topological order
+    private static CompiledGraph build(List<Integer> order, List<Agent> agents, List<String[]> subs, List<String[]> pubs) {
+        Map<String, Integer> slots = new LinkedHashMap<>(); // Slot of each topic
+        List<String> derived = new ArrayList<>(); // Topics written by the function, in the order they are written
+        for (int i : order) {
+            derived.add(normalize(pubs.get(i)[0]));
+        }
+        List<String> sources = new ArrayList<>(); // Topics only read by the function
+        for (int i : order) {
+            for (String sub : subs.get(i)) {
+                String topic = normalize(sub);
+                if (!derived.contains(topic) && !sources.contains(topic)) {
+                    sources.add(topic);
+                }
+            }
+        }
+        for (String topic : sources) {
+            slots.put(topic, slots.size());
+        }
+        for (String topic : derived) {
+            slots.put(topic, slots.size());
+        }
+
+        // Find the source slots every derived slot depends on, front to back
+        boolean[][] dependsOn = new boolean[derived.size()][sources.size()];
+        for (int k = 0; k < order.size(); k++) {
+            for (String sub : subs.get(order.get(k))) {
+                int input = slots.get(normalize(sub));
+                if (input < sources.size()) {
+                    dependsOn[k][input] = true;
+                } else {
+                    for (int source = 0; source < sources.size(); source++) {
+                        dependsOn[k][source] |= dependsOn[input - sources.size()][source];
+                    }
+                }
+            }
+        }
+
+        // Chain the steps back to front, so each step runs before the rest of the chain
+        MethodHandle function = MethodHandles.empty(MethodType.methodType(void.class, double[].class));
+        for (int k = order.size() - 1; k >= 0; k--) {
+            int i = order.get(k);
+            int[] inputs = new int[subs.get(i).length];
+            for (int j = 0; j < inputs.length; j++) {
+                inputs[j] = slots.get(normalize(subs.get(i)[j]));
+            }
+            MethodHandle step = step(ArithmeticOp.of(agents.get(i)), inputs, slots.get(derived.get(k)));
+            function = MethodHandles.foldArguments(function, step);
+        }
+        return new CompiledGraph(slots.keySet().toArray(new String[0]), sources.size(), function, dependsOn);
+    }
+
+    // Build one step of the function: slots[output] = op(slots[inputs[0]], slots[inputs[1]]), as a (double[])void handle
+    private static MethodHandle step(ArithmeticOp op, int[] inputs, int output) {
+        MethodHandle value = op.getHandle();
+        MethodHandle[] getters = new MethodHandle[inputs.length];
+        for (int j = 0; j < inputs.length; j++) {
+            getters[j] = MethodHandles.insertArguments(GET, 1, inputs[j]); // (double[])double
+        }
+        value = MethodHandles.filterArguments(value, 0, getters); // (double[]...)double
+        value = MethodHandles.permuteArguments(value, MethodType.methodType(double.class, double[].class), new int[inputs.length]);
+        MethodHandle store = MethodHandles.insertArguments(SET, 1, output); // (double[],double)void
+        store = MethodHandles.collectArguments(store, 1, value); // (double[],double[])void
+        return MethodHandles.permuteArguments(store, MethodType.methodType(void.class, double[].class), 0, 0);
+    }
+
+    // Find the root of an agent's subgraph
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // Get the input and output topics of an agent
+    private static List<String> topicsOf(String[] agentSubs, String[] agentPubs) {
+        List<String> topics = new ArrayList<>();
+        for (String sub : agentSubs) {
+            topics.add(normalize(sub));
+        }
+        for (String pub : agentPubs) {
+            topics.add(normalize(pub));
+        }
+        return topics;
+    }
+
+    // Topic names are case-insensitive
+    private static String normalize(String topic) {
+        return topic.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,143 @@
+package configs;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import graph.Agent;
+import graph.MailboxAgent;
+import graph.Message;
+import graph.TimingWheel;
+import graph.TopicManagerSingleton;
+
+/**
+ * A source agent that publishes a tick count on its output topic at a fixed period.
+ * The value received on its input topic sets the period in milliseconds (0 or less stops it).
+ * The ticks come from the shared timing wheel, so any number of timer agents run on one thread.
+ * The wheel thread never publishes itself: a tick is handed to a mailbox on the hand-off pool, and
+ * a tick that comes while the previous one is still being published is skipped and counted, so
+ * a slow subscriber cannot delay the other timers.
+ */
+public class TimerAgent implements Agent {
+    private final String name; // The name of the agent
+    private final String[] subs; // The input topics (subscribers)
+    private final String[] pubs; // The output topics (publishers)
+    private TimingWheel.Timer timer; // The running timer, or null when stopped
+    private long ticks = 0; // Number of ticks since the last reset
+    private final AtomicBoolean publishing = new AtomicBoolean(); // Whether a tick is being published
+    private final AtomicLong skippedCount = new AtomicLong(); // Ticks skipped because the previous one was still being published
+    private final MailboxAgent outbox = new MailboxAgent(new Output(), TimingWheel.handOff()); // Publishes the ticks off the wheel thread
+
+    // Create a TimerAgent.
+    public TimerAgent(String name, String[] subs, String[] pubs) {
+        this.name = name;
+        this.subs = subs;
+        this.pubs = pubs;
+        for (String sub : subs) {
+            TopicManagerSingleton.get().getTopic(sub).subscribe(this);
+        }
+        for (String pub : pubs) {
+            TopicManagerSingleton.get().getTopic(pub).addPublisher(this);
+        }
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    // Stop the timer and restart the tick count
+    @Override
+    public synchronized void reset() {
+        stop();
+        ticks = 0;
+    }
+
+    // Called when a message is received on a subscribed topic: restart the timer with the new period.
+    @Override
+    public synchronized void callback(String topic, Message msg) {
+        if (Double.isNaN(msg.asDouble)) {
+            return;
+        }
+        stop();
+        long period = (long) msg.asDouble;
+        if (period > 0) {
+            timer = TimingWheel.shared().scheduleAtFixedRate(this::tick, period, period);
+        }
+    }
+
+    // Hand the next tick count to the outbox (on the timing wheel's thread, which must not block)
+    private void tick() {
+        long count;
+        synchronized (this) {
+            count = ++ticks;
+        }
+        if (!publishing.compareAndSet(false, true)) {
+            skippedCount.incrementAndGet();
+            return;
+        }
+        outbox.callback(pubs[0], new Message((double) count));
+    }
+
+    // Cancel the running timer
+    private void stop() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    // Close the agent
+    @Override
+    public synchronized void close() {
+        stop();
+        outbox.close();
+        for (String sub : subs) {
+            TopicManagerSingleton.get().getTopic(sub).unsubscribe(this);
+        }
+    }
+
+    // Check if the timer is running
+    public synchronized boolean isRunning() {
+        return timer != null && timer.isActive();
+    }
+
+    // Get the number of ticks skipped because the previous one was still being published
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    // Get the output topics
+    public String[] getPubs() { return pubs; }
+    // Get the input topics
+    public String[] getSubs() { return subs; }
+
+    // Publishes the ticks handed to the outbox, on the hand-off pool
+    private final class Output implements Agent {
+        // Called by the outbox for each tick
+        @Override
+        public void callback(String topic, Message msg) {
+            try {
+                TopicManagerSingleton.get().getTopic(topic).publish(msg);
+            } finally {
+                publishing.set(false);
+            }
+        }
+
+        // Get the name of the agent
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        // Nothing to reset
+        @Override
+        public void reset() {
+        }
+
+        // Nothing to close
+        @Override
+        public void close() {
+        }
+    }
+}
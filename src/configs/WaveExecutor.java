@@ -0,0 +1,204 @@
+package configs;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import graph.Agent;
+import graph.Epoch;
+import graph.Message;
+
+/**
+ * Runs every external publish as a single "wave" through the agents of a graph.
+ * The topological order of the agents is computed once from the graph, and each
+ * wave delivers its messages in that order on one thread instead of handing them
+ * over to a separate thread per agent. Waves always run on the publisher's thread and are
+ * serialized, so agents never run concurrently; concurrent publishers wait for each other.
+ */
+public class WaveExecutor {
+    private final Map<String, Integer> ranks = new HashMap<>(); // Topological rank of each agent (by agent name)
+    private final int maxRank; // The highest rank in the graph
+    private final Object waveLock = new Object(); // Waves are serialized so agents never run concurrently
+    private final ThreadLocal<Wave> activeWave = new ThreadLocal<>(); // The wave running on the current thread
+    private final Wave wave; // The pending deliveries, reused by every wave since waves never overlap
+
+    // Create a wave executor that runs the waves on the caller's thread.
+    public WaveExecutor(Graph graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        this.maxRank = computeRanks(graph);
+        this.wave = new Wave(maxRank);
+    }
+
+    // Compute the rank (longest distance from a source) of every agent node, returns the highest rank.
+    private int computeRanks(Graph graph) {
+        Map<Node, Integer> inDegree = new HashMap<>(); // Number of unprocessed incoming edges per node
+        for (Node node : graph) {
+            inDegree.putIfAbsent(node, 0);
+            for (Node edge : node.getEdges()) {
+                inDegree.merge(edge, 1, Integer::sum);
+            }
+        }
+
+        Map<Node, Integer> depth = new HashMap<>(); // Longest distance of each node from a source
+        ArrayDeque<Node> ready = new ArrayDeque<>(); // Nodes whose incoming edges have all been processed
+        for (Map.Entry<Node, Integer> entry : inDegree.entrySet()) {
+            if (entry.getValue() == 0) {
+                ready.add(entry.getKey());
+                depth.put(entry.getKey(), 0);
+            }
+        }
+
+        int processed = 0;
+        while (!ready.isEmpty()) { // Kahn's algorithm
+            Node node = ready.poll();
+            processed++;
+            int d = depth.get(node);
+            for (Node edge : node.getEdges()) {
+                depth.merge(edge, d + 1, Math::max);
+                if (inDegree.merge(edge, -1, Integer::sum) == 0) {
+                    ready.add(edge);
+                }
+            }
+        }
+        if (processed != inDegree.size()) { // Some nodes were never freed, so the graph has a cycle
+            throw new IllegalArgumentException("Cannot compute a topological order: the graph contains cycles");
+        }
+
+        int highest = 0;
+        for (Map.Entry<Node, Integer> entry : depth.entrySet()) {
+            if (entry.getKey().isAgent()) {
+                int rank = entry.getValue() / 2; // Topics and agents alternate along every path
+                ranks.put(entry.getKey().getName().substring(1), rank);
+                highest = Math.max(highest, rank);
+            }
+        }
+        return highest;
+    }
+
+    // Wrap an agent so the messages it receives are delivered through the waves of this executor.
+    public Agent bind(Agent agent) {
+        if (agent == null) {
+            throw new IllegalArgumentException("Agent cannot be null");
+        }
+        return new WaveAgent(agent, ranks.getOrDefault(agent.getName(), 0));
+    }
+
+    // Get the topological rank of an agent, or -1 if the agent is not part of the graph
+    public int getRank(String agentName) {
+        return ranks.getOrDefault(agentName, -1);
+    }
+
+    // Get the number of agent ranks in the graph
+    public int getRankCount() {
+        return ranks.isEmpty() ? 0 : maxRank + 1;
+    }
+
+    // Release the executor (waves hold no threads, so there is nothing to stop)
+    public void close() {
+    }
+
+    // Run a wave on the current thread until every delivery it produced has been made.
+    private void runWave(WaveAgent target, String topic, Message msg) {
+        synchronized (waveLock) {
+            activeWave.set(wave);
+            try {
+                wave.add(target, topic, msg);
+                wave.drain();
+            } finally {
+                activeWave.remove();
+            }
+        }
+    }
+
+    // A single message waiting to be delivered to an agent during a wave
+    private static final class Delivery {
+        final WaveAgent target;
+        final String topic;
+        final Message msg;
+
+        Delivery(WaveAgent target, String topic, Message msg) {
+            this.target = target;
+            this.topic = topic;
+            this.msg = msg;
+        }
+    }
+
+    // The pending deliveries of one wave, bucketed by the rank of their target agent
+    private static final class Wave {
+        private final ArrayDeque<Delivery>[] buckets;
+        private int cursor = 0; // The lowest rank that may still have pending deliveries
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Wave(int maxRank) {
+            buckets = new ArrayDeque[maxRank + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new ArrayDeque<>();
+            }
+        }
+
+        void add(WaveAgent target, String topic, Message msg) {
+            int rank = Math.min(target.rank, buckets.length - 1);
+            buckets[rank].add(new Delivery(target, topic, msg));
+            if (rank < cursor) {
+                cursor = rank;
+            }
+        }
+
+        void drain() {
+            while (cursor < buckets.length) {
+                Delivery d = buckets[cursor].poll();
+                if (d == null) {
+                    cursor++;
+                    continue;
+                }
+                try {
+                    Epoch.deliver(d.target.agent, d.topic, d.msg);
+                } catch (Exception e) {
+                    // Continue with the rest of the wave even if one agent fails
+                }
+            }
+        }
+    }
+
+    // An agent whose incoming messages are scheduled by the wave executor
+    private final class WaveAgent implements Agent {
+        private final Agent agent; // The wrapped agent
+        private final int rank; // The topological rank of the agent
+
+        WaveAgent(Agent agent, int rank) {
+            this.agent = agent;
+            this.rank = rank;
+        }
+
+        // Called when a message is received on a subscribed topic
+        @Override
+        public void callback(String topic, Message msg) {
+            Wave wave = activeWave.get();
+            if (wave != null) { // Published by an agent of the running wave
+                wave.add(this, topic, msg);
+            } else { // Published from outside, start a new wave
+                runWave(this, topic, msg);
+            }
+        }
+
+        // Get the name of the agent
+        @Override
+        public String getName() {
+            return agent.getName();
+        }
+
+        // Reset the agent
+        @Override
+        public void reset() {
+            agent.reset();
+        }
+
+        // Close the agent
+        @Override
+        public void close() {
+            agent.close();
+        }
+    }
+}
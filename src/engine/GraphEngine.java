@@ -0,0 +1,256 @@
+package engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import configs.ExecutionMode;
+import configs.GenericConfig;
+import graph.Agent;
+import graph.Message;
+import graph.Topic;
+import graph.TopicManagerSingleton;
+
+/**
+ * Runs a computational graph in-process, without the HTTP server, servlets or views.
+ * A graph is built from code, from a configuration String or InputStream, or from a file, and is
+ * then fed with publish(topic, value) and read with read(topic). Topic lookups are cached per
+ * engine, and a published double becomes a message without being parsed back from its text. The
+ * WAVE mode is the default: a publish runs the whole graph on the caller's thread, so a read right
+ * after it sees the result; concurrent publishes wait for each other's waves.
+ * Topics live in the process-wide topic manager, so only one engine can be open at a time.
+ */
+public final class GraphEngine implements AutoCloseable {
+    private static final AtomicBoolean OPEN = new AtomicBoolean(); // Whether an engine is open in this process
+
+    private final GenericConfig config; // The loaded configuration
+    private final Set<String> ownTopics; // The topics created for this engine, removed on close
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>(); // Topics by the name the caller used
+    private volatile boolean closed = false; // Whether the engine was closed
+
+    // Create an engine for a loaded configuration (see the builder)
+    private GraphEngine(GenericConfig config, Set<String> ownTopics) {
+        this.config = config;
+        this.ownTopics = ownTopics;
+    }
+
+    // Start building an engine
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Publish a value on a topic
+    public void publish(String topic, double value) {
+        topicOf(topic).publish(new Message(value));
+    }
+
+    // Publish a value on a topic for one key (KEYED mode)
+    public void publish(String topic, double value, long key) {
+        topicOf(topic).publish(new Message(value, key));
+    }
+
+    // Read the latest value of a topic, or NaN if it has none yet
+    public double read(String topic) {
+        Message msg = topicOf(topic).getLatestMessage();
+        return msg == null ? Double.NaN : msg.asDouble;
+    }
+
+    // Read the latest message of a topic, or null if it has none yet
+    public Message readMessage(String topic) {
+        return topicOf(topic).getLatestMessage();
+    }
+
+    // Get a topic of the graph by name (case-insensitive)
+    private Topic topicOf(String name) {
+        if (closed) {
+            throw new IllegalStateException("The engine is closed");
+        }
+        if (name == null) {
+            throw new IllegalArgumentException("Topic name cannot be null");
+        }
+        Topic topic = topics.get(name);
+        if (topic == null) {
+            if (!TopicManagerSingleton.get().hasTopic(name)) {
+                throw new IllegalArgumentException("No such topic in the graph: " + name);
+            }
+            topic = TopicManagerSingleton.get().getTopic(name);
+            topics.put(name, topic);
+        }
+        return topic;
+    }
+
+    // Get the names of the topics of the graph
+    public Set<String> getTopicNames() {
+        return new HashSet<>(ownTopics);
+    }
+
+    // Stop the agents and remove the topics of the graph
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            config.close();
+        } finally {
+            for (String name : ownTopics) {
+                TopicManagerSingleton.get().removeTopic(name);
+            }
+            topics.clear();
+            OPEN.set(false);
+        }
+    }
+
+    /**
+     * Builds a GraphEngine from agents declared in code or from a configuration in the file format.
+     */
+    public static final class Builder {
+        private final StringBuilder text = new StringBuilder(); // The configuration, as agent blocks of three lines
+        private ExecutionMode mode = ExecutionMode.WAVE; // How messages are delivered to the agents
+        private boolean optimize = false; // Whether the graph optimizer runs at load
+        private long warmUpIterations = 0; // Warm-up passes at load
+        private long warmUpMillis = 0; // Longest the warm-up runs
+
+        private Builder() {
+        }
+
+        // Add an agent of the given class reading the input topics and writing the output topics
+        public Builder agent(Class<? extends Agent> agentClass, String[] subs, String[] pubs) {
+            if (agentClass == null) {
+                throw new IllegalArgumentException("Agent class cannot be null");
+            }
+            return agent(agentClass.getName(), subs, pubs);
+        }
+
+        // Add an agent by class name (e.g. "configs.PlusAgent", the built-in agents are not exported) reading the input topics and writing the output topics
+        public Builder agent(String className, String[] subs, String[] pubs) {
+            if (className == null || className.trim().isEmpty()) {
+                throw new IllegalArgumentException("Agent class name cannot be null or empty");
+            }
+            if (subs == null || subs.length == 0 || pubs == null || pubs.length == 0) {
+                throw new IllegalArgumentException("Agent " + className + " needs input and output topics");
+            }
+            text.append(className.trim()).append('\n')
+                .append(String.join(",", subs)).append('\n')
+                .append(String.join(",", pubs)).append('\n');
+            return this;
+        }
+
+        // Add the agent blocks of a configuration in the file format
+        public Builder fromString(String config) {
+            if (config == null) {
+                throw new IllegalArgumentException("Configuration cannot be null");
+            }
+            text.append(config).append('\n');
+            return this;
+        }
+
+        // Add the agent blocks of a configuration read from a stream (UTF-8); the stream is not closed
+        public Builder fromStream(InputStream in) {
+            if (in == null) {
+                throw new IllegalArgumentException("Configuration stream cannot be null");
+            }
+            try {
+                return fromString(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading configuration stream", e);
+            }
+        }
+
+        // Add the agent blocks of a configuration file (UTF-8)
+        public Builder fromFile(Path file) {
+            if (file == null) {
+                throw new IllegalArgumentException("Configuration file cannot be null");
+            }
+            try {
+                return fromString(Files.readString(file, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading configuration file: " + file, e);
+            }
+        }
+
+        // Set the execution mode by name, e.g. "PARALLEL" (WAVE by default)
+        public Builder mode(String mode) {
+            if (mode == null) {
+                throw new IllegalArgumentException("Execution mode cannot be null");
+            }
+            try {
+                this.mode = ExecutionMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown execution mode: " + mode + ", expected one of "
+                    + Arrays.toString(ExecutionMode.values()));
+            }
+            return this;
+        }
+
+        // Set whether the graph optimizer folds constants and merges identical agents at load
+        public Builder optimize(boolean optimize) {
+            this.optimize = optimize;
+            return this;
+        }
+
+        // Warm the JIT up at load for a number of passes or milliseconds (both 0 = off)
+        public Builder warmUp(long iterations, long maxMillis) {
+            if (iterations < 0 || maxMillis < 0) {
+                throw new IllegalArgumentException("Warm-up iterations and time cannot be negative: " + iterations + ", " + maxMillis);
+            }
+            this.warmUpIterations = iterations;
+            this.warmUpMillis = maxMillis;
+            return this;
+        }
+
+        // Load the configuration and start its agents
+        public GraphEngine build() {
+            if (text.toString().trim().isEmpty()) {
+                throw new IllegalStateException("No agents were added to the engine");
+            }
+            if (!OPEN.compareAndSet(false, true)) {
+                throw new IllegalStateException("Another engine is open in this process; close it first");
+            }
+            Set<String> before = new HashSet<>();
+            for (Topic topic : TopicManagerSingleton.get().getTopics()) {
+                before.add(topic.name);
+            }
+            GenericConfig config = new GenericConfig();
+            try {
+                config.setConfText(text.toString());
+                config.setExecutionMode(mode);
+                config.setOptimize(optimize);
+                config.setWarmUp(warmUpIterations, warmUpMillis);
+                config.create();
+            } catch (RuntimeException e) {
+                config.close();
+                removeNewTopics(before);
+                OPEN.set(false);
+                throw e;
+            }
+            Set<String> own = new HashSet<>();
+            for (Topic topic : TopicManagerSingleton.get().getTopics()) {
+                if (!before.contains(topic.name)) {
+                    own.add(topic.name);
+                }
+            }
+            return new GraphEngine(config, own);
+        }
+
+        // Remove the topics a failed load created
+        private static void removeNewTopics(Set<String> before) {
+            for (Topic topic : TopicManagerSingleton.get().getTopics()) {
+                if (!before.contains(topic.name)) {
+                    TopicManagerSingleton.get().removeTopic(topic.name);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package graph;
+
+import java.util.logging.Logger;
+
+/**
+ * Runs an agent inline on the publisher's thread while its callbacks are cheap, and moves it
+ * behind an asynchronous mailbox once the measured callback cost goes over a threshold.
+ * The cost is an exponentially weighted moving average of the agent's own callback time: the
+ * time spent in other adaptive agents called inline from the callback is not counted. The cost
+ * is still measured behind the mailbox, and the agent moves back inline once it drops under
+ * half the threshold and the mailbox is empty, so it does not flip on every small change.
+ */
+public class AdaptiveAgent implements Agent {
+    private static final Logger LOGGER = Logger.getLogger(AdaptiveAgent.class.getName());
+    private static final int WARMUP_CALLS = 32; // Callbacks measured before the cost is trusted
+    private static final double SMOOTHING = 0.1; // Weight of the newest sample in the moving average
+    private static final ThreadLocal<long[]> NESTED_NANOS = ThreadLocal.withInitial(() -> new long[1]); // Time of the adaptive callbacks nested in the current one
+
+    private final Agent agent; // The wrapped agent
+    private final long thresholdNanos; // Average callback cost above which the agent goes asynchronous
+    private final Agent measured = new MeasuredAgent(); // The agent as run behind the boundary, still measured
+    private MailboxAgent async = null; // The asynchronous boundary while the agent runs behind one (guarded by this)
+    private double averageNanos = 0; // Moving average of the callback cost
+    private int calls = 0; // Number of callbacks measured since the last move
+
+    // Constructor
+    public AdaptiveAgent(Agent agent, long thresholdNanos) {
+        if (agent == null) {
+            throw new IllegalArgumentException("Agent cannot be null");
+        }
+        if (thresholdNanos < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative: " + thresholdNanos);
+        }
+        this.agent = agent;
+        this.thresholdNanos = thresholdNanos;
+    }
+
+    // Called when a message is received on a subscribed topic
+    @Override
+    public void callback(String topic, Message msg) {
+        long[] nested = NESTED_NANOS.get();
+        long outer = nested[0];
+        long start = System.nanoTime();
+        try {
+            adapt(topic, msg);
+        } finally {
+            nested[0] = outer + (System.nanoTime() - start); // Enqueueing and moving are not the caller's own time either
+        }
+    }
+
+    // Run the message inline or hand it to the boundary, and move the agent if its cost calls for it
+    private void adapt(String topic, Message msg) {
+        synchronized (this) { // Inline callbacks never run concurrently, and never alongside the mailbox
+            if (async != null && calls >= WARMUP_CALLS && averageNanos < thresholdNanos / 2.0
+                    && async.getPendingCount() == 0) {
+                async = null; // Cheap again and nothing queued, so nothing can be overtaken
+                calls = 0;
+                LOGGER.info(String.format("Agent %s moved back inline (average callback %.1f us < %.1f us)",
+                    agent.getName(), averageNanos / 1e3, thresholdNanos / 2e3));
+            }
+            if (async != null) {
+                async.callback(topic, msg);
+                return;
+            }
+            run(topic, msg);
+            if (calls >= WARMUP_CALLS && averageNanos > thresholdNanos) {
+                async = new MailboxAgent(measured);
+                calls = 0;
+                LOGGER.info(String.format("Agent %s moved behind an async boundary (average callback %.1f us > %.1f us)",
+                    agent.getName(), averageNanos / 1e3, thresholdNanos / 1e3));
+            }
+        }
+    }
+
+    // Run the wrapped agent and add its own time, without the nested adaptive callbacks, to the average
+    private void run(String topic, Message msg) {
+        long[] nested = NESTED_NANOS.get();
+        long outer = nested[0];
+        nested[0] = 0;
+        long start = System.nanoTime();
+        try {
+            agent.callback(topic, msg);
+        } finally {
+            long total = System.nanoTime() - start;
+            measure(total - nested[0]);
+            nested[0] = outer + total; // The caller does not count this callback as its own time
+        }
+    }
+
+    // Add a callback time to the average
+    private synchronized void measure(long nanos) {
+        calls++;
+        averageNanos = calls == 1 && averageNanos == 0 ? nanos : averageNanos + SMOOTHING * (nanos - averageNanos);
+    }
+
+    // Check if the agent currently runs behind an asynchronous boundary
+    public synchronized boolean isAsync() {
+        return async != null;
+    }
+
+    // Get the average callback cost in nanoseconds
+    public synchronized double getAverageNanos() {
+        return averageNanos;
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return agent.getName();
+    }
+
+    // Reset the agent
+    @Override
+    public void reset() {
+        agent.reset();
+    }
+
+    // Close the agent
+    @Override
+    public void close() {
+        MailboxAgent boundary;
+        synchronized (this) {
+            boundary = async;
+        }
+        if (boundary != null) {
+            boundary.close(); // Also closes the wrapped agent
+        } else {
+            agent.close();
+        }
+    }
+
+    // The wrapped agent as the mailbox runs it, measured like the inline callbacks
+    private final class MeasuredAgent implements Agent {
+        // Called by the mailbox for each queued message
+        @Override
+        public void callback(String topic, Message msg) {
+            run(topic, msg);
+        }
+
+        // Get the name of the agent
+        @Override
+        public String getName() {
+            return agent.getName();
+        }
+
+        // Reset the agent
+        @Override
+        public void reset() {
+            agent.reset();
+        }
+
+        // Close the agent
+        @Override
+        public void close() {
+            agent.close();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package graph;
+
+/**
+ * The states of an agent's circuit breaker.
+ */
+public enum BreakerState {
+    CLOSED, // The agent is healthy, every input is delivered within its deadline
+    OPEN, // The agent is quarantined, its inputs are conflated until the next probe
+    HALF_OPEN; // A probe input is being delivered to see if the agent recovered
+}
@@ -0,0 +1,276 @@
+package graph;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Isolates a possibly misbehaving agent behind an execution deadline and a circuit breaker.
+ * Every callback runs on a shared call pool while the caller waits at most the deadline, so a
+ * stuck agent can no longer pin the thread (and, through backpressure, the publisher) calling it.
+ * Inputs arriving while a timed-out call still runs are held back, conflated to the latest value
+ * per topic, and delivered once it finishes. After a number of failed calls in a row (timeouts or
+ * exceptions, one per call) the breaker opens and inputs are held back the same way. When the
+ * probe interval has passed, the newest held-back input (or the next input) is delivered as a
+ * probe, even if no more inputs arrive; if it succeeds the breaker closes and the rest follow.
+ */
+public class CircuitBreakerAgent implements Agent {
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreakerAgent.class.getName());
+    private static final ExecutorService CALLS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "AgentCall");
+        t.setDaemon(true);
+        return t;
+    }); // Runs the guarded callbacks; a stuck callback only pins one of these threads
+    private static final int RUNNING = 0; // The call is running and its caller is waiting for it
+    private static final int FINISHED = 1; // The call finished
+    private static final int ABANDONED = 2; // The call missed its deadline and its caller moved on
+
+    private final Agent agent; // The guarded agent
+    private final long deadlineNanos; // Longest a callback may run before it counts as a timeout
+    private final int failureThreshold; // Failures in a row that open the breaker
+    private final long probeIntervalNanos; // Time the breaker stays open before a probe
+    private final AtomicBoolean inFlight = new AtomicBoolean(); // Whether a callback is still running (possibly past its deadline)
+    private final Map<String, Message> pending = new LinkedHashMap<>(); // Latest undelivered input per topic
+    private volatile BreakerState state = BreakerState.CLOSED; // The state of the breaker
+    private int consecutiveFailures = 0; // Failures since the last success
+    private long openedAt = 0; // When the breaker last opened
+    private TimingWheel.Timer probeTimer = null; // The scheduled probe while the breaker is open
+    private final LongAdder timeoutCount = new LongAdder(); // Callbacks that missed their deadline
+    private final LongAdder errorCount = new LongAdder(); // Callbacks that threw
+    private final LongAdder conflatedCount = new LongAdder(); // Inputs held back instead of delivered
+    private final LongAdder tripCount = new LongAdder(); // Times the breaker opened
+    private final LatencyStats callLatency = new LatencyStats(); // Duration of the callbacks that met their deadline
+
+    // Create a breaker with the given deadline, number of failures that open it, and probe interval, in milliseconds.
+    public CircuitBreakerAgent(Agent agent, long deadlineMillis, int failureThreshold, long probeIntervalMillis) {
+        if (agent == null) {
+            throw new IllegalArgumentException("Agent cannot be null");
+        }
+        if (deadlineMillis < 1) {
+            throw new IllegalArgumentException("Deadline must be at least 1 ms, got: " + deadlineMillis);
+        }
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1, got: " + failureThreshold);
+        }
+        if (probeIntervalMillis < 0) {
+            throw new IllegalArgumentException("Probe interval cannot be negative: " + probeIntervalMillis);
+        }
+        this.agent = agent;
+        this.deadlineNanos = deadlineMillis * 1_000_000L;
+        this.failureThreshold = failureThreshold;
+        this.probeIntervalNanos = probeIntervalMillis * 1_000_000L;
+    }
+
+    // Called when a message is received on a subscribed topic
+    @Override
+    public synchronized void callback(String topic, Message msg) {
+        if (inFlight.get()) { // A timed-out callback is still running: the agent cannot take more work
+            conflate(topic, msg);
+            return;
+        }
+        if (state == BreakerState.OPEN) {
+            if (System.nanoTime() - openedAt < probeIntervalNanos) {
+                conflate(topic, msg);
+                return;
+            }
+            state = BreakerState.HALF_OPEN; // This input is the probe
+        }
+        pending.remove(topic); // Older than this input
+        deliver(topic, msg);
+        flush();
+    }
+
+    // Deliver the held-back inputs, oldest first, while the breaker stays closed and no call overruns
+    private synchronized void flush() {
+        while (state == BreakerState.CLOSED && !inFlight.get() && !pending.isEmpty()) {
+            Iterator<Map.Entry<String, Message>> oldest = pending.entrySet().iterator();
+            Map.Entry<String, Message> next = oldest.next();
+            oldest.remove();
+            deliver(next.getKey(), next.getValue());
+        }
+    }
+
+    // Deliver the newest held-back input as a probe once the probe interval has passed (runs on the call pool)
+    private synchronized void probe() {
+        probeTimer = null;
+        if (state != BreakerState.OPEN || pending.isEmpty()) {
+            return; // Closed meanwhile, or nothing to probe with: the next input probes
+        }
+        if (inFlight.get()) { // The last probe still overruns, try again one interval later
+            scheduleProbe();
+            return;
+        }
+        Map.Entry<String, Message> newest = null;
+        for (Map.Entry<String, Message> entry : pending.entrySet()) {
+            newest = entry;
+        }
+        pending.remove(newest.getKey());
+        state = BreakerState.HALF_OPEN;
+        deliver(newest.getKey(), newest.getValue());
+        flush();
+    }
+
+    // Deliver one input within the deadline, and update the breaker with the outcome
+    private void deliver(String topic, Message msg) {
+        boolean muted = Epoch.isMuted(); // The call pool thread must discard the publishes too
+        Epoch epoch = Epoch.current(); // And handle them in the caller's epoch
+        long start = System.nanoTime();
+        AtomicInteger outcome = new AtomicInteger(RUNNING); // Who handles the end of the call
+        inFlight.set(true);
+        Future<?> call;
+        try {
+            call = CALLS.submit(() -> {
+                Epoch previous = Epoch.enter(epoch);
+                try {
+                    if (muted) {
+                        Epoch.deliverMuted(agent, topic, msg);
+                    } else {
+                        Epoch.deliver(agent, topic, msg);
+                    }
+                } finally {
+                    Epoch.exit(previous);
+                    inFlight.set(false);
+                    if (!outcome.compareAndSet(RUNNING, FINISHED)) { // Nobody waits for this overrun call: deliver what it held back
+                        CALLS.execute(this::flush);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.set(false);
+            return;
+        }
+        try {
+            call.get(deadlineNanos, TimeUnit.NANOSECONDS);
+            callLatency.record(System.nanoTime() - start);
+            recordSuccess();
+        } catch (TimeoutException e) {
+            outcome.compareAndSet(RUNNING, ABANDONED); // If it finished just now, the caller's own flush follows
+            timeoutCount.increment();
+            recordFailure();
+        } catch (ExecutionException e) {
+            errorCount.increment();
+            recordFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // The caller is stopping; the call finishes on its own
+        }
+    }
+
+    // Close the breaker after a successful delivery
+    private void recordSuccess() {
+        consecutiveFailures = 0;
+        if (state != BreakerState.CLOSED) {
+            state = BreakerState.CLOSED;
+            LOGGER.info("Agent " + agent.getName() + " recovered, circuit breaker closed");
+        }
+    }
+
+    // Count a failed call, and open the breaker if there were too many in a row (or the probe failed)
+    private void recordFailure() {
+        consecutiveFailures++;
+        if (state == BreakerState.HALF_OPEN || (state == BreakerState.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = BreakerState.OPEN;
+            openedAt = System.nanoTime();
+            tripCount.increment();
+            LOGGER.warning("Agent " + agent.getName() + " quarantined after " + consecutiveFailures
+                + " failure(s), circuit breaker open");
+            scheduleProbe();
+        } else if (state == BreakerState.OPEN) {
+            openedAt = System.nanoTime(); // Still failing: wait a whole interval before the next probe
+            scheduleProbe();
+        }
+    }
+
+    // Schedule a probe one interval from now; the timer thread only hands it to the call pool
+    private void scheduleProbe() {
+        if (probeTimer != null) {
+            probeTimer.cancel();
+        }
+        probeTimer = TimingWheel.shared().schedule(() -> CALLS.execute(this::probe), probeIntervalNanos / 1_000_000L);
+    }
+
+    // Hold an input back, replacing the older held-back input of the same topic
+    private void conflate(String topic, Message msg) {
+        pending.remove(topic); // Keep the held-back inputs in arrival order
+        pending.put(topic, msg);
+        conflatedCount.increment();
+    }
+
+    // Get the state of the breaker
+    public BreakerState getState() {
+        return state;
+    }
+
+    // Get the number of callbacks that missed their deadline
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    // Get the number of callbacks that threw
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    // Get the number of inputs held back instead of delivered
+    public long getConflatedCount() {
+        return conflatedCount.sum();
+    }
+
+    // Get the number of times the breaker opened
+    public long getTripCount() {
+        return tripCount.sum();
+    }
+
+    // Get the duration of the callbacks that met their deadline
+    public LatencyStats getCallLatency() {
+        return callLatency;
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return agent.getName();
+    }
+
+    // Reset the agent and close the breaker
+    @Override
+    public synchronized void reset() {
+        if (probeTimer != null) {
+            probeTimer.cancel();
+            probeTimer = null;
+        }
+        pending.clear();
+        consecutiveFailures = 0;
+        state = BreakerState.CLOSED;
+        agent.reset();
+    }
+
+    // Close the agent
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (probeTimer != null) {
+                probeTimer.cancel();
+                probeTimer = null;
+            }
+        }
+        agent.close();
+    }
+
+    // Get the string representation of the breaker
+    @Override
+    public String toString() {
+        return "CircuitBreakerAgent{agent=" + agent.getName() + ", state=" + state + ", timeouts=" + timeoutCount.sum()
+            + ", errors=" + errorCount.sum() + ", conflated=" + conflatedCount.sum() + "}";
+    }
+}
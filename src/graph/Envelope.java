@@ -0,0 +1,28 @@
+package graph;
+
+/**
+ * An immutable pair of a message and the topic it was published on.
+ * Used to carry messages through agent queues without re-encoding them.
+ */
+public final class Envelope {
+    public final String topic; // The topic the message was published on
+    public final Message msg; // The original message
+
+    // Constructor
+    public Envelope(String topic, Message msg) {
+        if (topic == null) {
+            throw new IllegalArgumentException("Topic cannot be null");
+        }
+        if (msg == null) {
+            throw new IllegalArgumentException("Message cannot be null");
+        }
+        this.topic = topic;
+        this.msg = msg;
+    }
+
+    // Convert the envelope to a string
+    @Override
+    public String toString() {
+        return "Envelope{topic='" + topic + "', msg=" + msg + "}";
+    }
+}
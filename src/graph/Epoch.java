@@ -0,0 +1,114 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Identifies one external publish and every message derived from it.
+ * The epoch of the message being handled is kept per thread while an agent runs,
+ * so the messages the agent creates inherit it without any change to the agent.
+ */
+public final class Epoch {
+    private static final AtomicLong NEXT_ID = new AtomicLong(); // Source of epoch numbers
+    private static final ThreadLocal<Epoch> CURRENT = new ThreadLocal<>(); // The epoch being handled on this thread
+    private static final ThreadLocal<Boolean> MUTED = new ThreadLocal<>(); // Whether publishes on this thread are discarded
+    private static final ThreadLocal<List<Envelope>> CAPTURED = new ThreadLocal<>(); // Where publishes on this thread are held back, or null
+
+    public final long id; // The epoch number
+    public final String source; // The topic the external publish was made on
+
+    // Constructor
+    private Epoch(long id, String source) {
+        this.id = id;
+        this.source = source;
+    }
+
+    // Start a new epoch for an external publish on the given topic
+    public static Epoch next(String source) {
+        return new Epoch(NEXT_ID.incrementAndGet(), source);
+    }
+
+    // Get the epoch being handled on this thread, or null if there is none
+    public static Epoch current() {
+        return CURRENT.get();
+    }
+
+    // Make an epoch the current one on this thread, returns the previous one to restore with exit()
+    public static Epoch enter(Epoch epoch) {
+        Epoch previous = CURRENT.get();
+        CURRENT.set(epoch);
+        return previous;
+    }
+
+    // Restore the epoch that was current before enter()
+    public static void exit(Epoch previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    // Deliver a message to an agent with the message's epoch as the current one
+    public static void deliver(Agent agent, String topic, Message msg) {
+        if (msg.epoch == null) {
+            agent.callback(topic, msg);
+            return;
+        }
+        Epoch previous = enter(msg.epoch);
+        try {
+            agent.callback(topic, msg);
+        } finally {
+            exit(previous);
+        }
+    }
+
+    // Deliver a message to an agent while discarding everything the agent publishes
+    public static void deliverMuted(Agent agent, String topic, Message msg) {
+        MUTED.set(Boolean.TRUE);
+        try {
+            deliver(agent, topic, msg);
+        } finally {
+            MUTED.remove();
+        }
+    }
+
+    // Deliver a message to an agent while holding back everything the agent publishes, returns the held-back publishes in order
+    public static List<Envelope> deliverCaptured(Agent agent, String topic, Message msg) {
+        List<Envelope> captured = new ArrayList<>();
+        List<Envelope> previous = CAPTURED.get();
+        CAPTURED.set(captured);
+        try {
+            deliver(agent, topic, msg);
+        } finally {
+            if (previous == null) {
+                CAPTURED.remove();
+            } else {
+                CAPTURED.set(previous);
+            }
+        }
+        return captured;
+    }
+
+    // Hold back a publish if publishes on this thread are being captured, returns false if they are not
+    static boolean capture(String topic, Message msg) {
+        List<Envelope> captured = CAPTURED.get();
+        if (captured == null) {
+            return false;
+        }
+        captured.add(new Envelope(topic, msg));
+        return true;
+    }
+
+    // Check if publishes on this thread are currently discarded
+    public static boolean isMuted() {
+        return MUTED.get() != null;
+    }
+
+    // Convert the epoch to a string
+    @Override
+    public String toString() {
+        return "Epoch{id=" + id + ", source='" + source + "'}";
+    }
+}
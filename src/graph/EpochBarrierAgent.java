@@ -0,0 +1,153 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes a multi-input agent fire once per epoch.
+ * When several inputs of the agent derive from the same external publish, the barrier holds
+ * the inputs of that epoch until all of them have arrived. It then hands them to the agent
+ * together, and only the last one is allowed to publish. Several epochs can be pending at once,
+ * so different parts of the graph can work on different epochs at the same time. An epoch older
+ * than the last one fired never fires (it would publish a stale result after a newer one): its
+ * inputs are dropped, and the epochs evicted incomplete only update the agent's inputs, muted.
+ */
+public class EpochBarrierAgent implements Agent {
+    private static final int MAX_PENDING_EPOCHS = 1024; // Epochs held at once before the oldest is evicted incomplete
+
+    private final Agent agent; // The wrapped agent
+    private final Map<String, Set<String>> expectedInputs; // For each source topic, the inputs of the agent that derive from it
+    private final LinkedHashMap<Long, Map<String, Message>> pending = new LinkedHashMap<>(); // Inputs received so far, by epoch
+    private final AtomicLong suppressedCount = new AtomicLong(); // Firings that were merged into a single one
+    private final AtomicLong droppedCount = new AtomicLong(); // Epochs that never fired (evicted incomplete, or older than the last one fired)
+    private final Object fireLock = new Object(); // Orders the firings, so lastFired only grows
+    private long lastFired = Long.MIN_VALUE; // The id of the last epoch fired (guarded by fireLock)
+
+    // Constructor
+    public EpochBarrierAgent(Agent agent, Map<String, Set<String>> expectedInputs) {
+        if (agent == null) {
+            throw new IllegalArgumentException("Agent cannot be null");
+        }
+        if (expectedInputs == null) {
+            throw new IllegalArgumentException("Expected inputs cannot be null");
+        }
+        this.agent = agent;
+        this.expectedInputs = new HashMap<>(expectedInputs);
+    }
+
+    // Called when a message is received on a subscribed topic
+    @Override
+    public void callback(String topic, Message msg) {
+        Epoch epoch = msg.epoch;
+        Set<String> expected = epoch != null ? expectedInputs.get(epoch.source) : null;
+        if (expected == null || expected.size() < 2 || !expected.contains(topic)) { // Nothing to wait for
+            Epoch.deliver(agent, topic, msg);
+            return;
+        }
+
+        Map<String, Message> inputs;
+        List<Map.Entry<Long, Map<String, Message>>> evicted = new ArrayList<>(); // Epochs given up on
+        synchronized (pending) {
+            inputs = pending.computeIfAbsent(epoch.id, id -> new LinkedHashMap<>());
+            inputs.put(topic, msg);
+            if (inputs.keySet().containsAll(expected)) { // Every input of this epoch has arrived
+                pending.remove(epoch.id);
+                pending.keySet().removeIf(id -> { // Older epochs can no longer fire after this one
+                    if (id < epoch.id) {
+                        droppedCount.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                });
+            } else {
+                inputs = null;
+                while (pending.size() > MAX_PENDING_EPOCHS) {
+                    evicted.add(evictOldest());
+                }
+            }
+        }
+        synchronized (fireLock) {
+            for (Map.Entry<Long, Map<String, Message>> old : evicted) {
+                droppedCount.incrementAndGet();
+                if (old.getKey() > lastFired) { // Keep the agent's inputs current without publishing an incomplete result
+                    for (Map.Entry<String, Message> input : old.getValue().entrySet()) {
+                        Epoch.deliverMuted(agent, input.getKey(), input.getValue());
+                    }
+                }
+            }
+            if (inputs != null) {
+                if (epoch.id < lastFired) { // A newer epoch already fired, this result would be stale
+                    droppedCount.incrementAndGet();
+                } else {
+                    lastFired = epoch.id;
+                    fire(inputs);
+                }
+            }
+        }
+    }
+
+    // Remove the oldest pending epoch (one of its inputs never arrived), returns it with its id
+    private Map.Entry<Long, Map<String, Message>> evictOldest() {
+        Iterator<Map.Entry<Long, Map<String, Message>>> it = pending.entrySet().iterator();
+        Map.Entry<Long, Map<String, Message>> oldest = it.next();
+        it.remove();
+        return oldest;
+    }
+
+    // Hand the inputs of one epoch to the agent, letting only the last one publish
+    private void fire(Map<String, Message> inputs) {
+        int remaining = inputs.size();
+        for (Map.Entry<String, Message> input : inputs.entrySet()) {
+            if (--remaining > 0) {
+                Epoch.deliverMuted(agent, input.getKey(), input.getValue());
+                suppressedCount.incrementAndGet();
+            } else {
+                Epoch.deliver(agent, input.getKey(), input.getValue());
+            }
+        }
+    }
+
+    // Get the number of firings suppressed because they were merged with the rest of their epoch
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    // Get the number of epochs that never fired, because an input never arrived or a newer epoch fired first
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    // Get the number of epochs waiting for some of their inputs
+    public int getPendingEpochCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return agent.getName();
+    }
+
+    // Reset the agent
+    @Override
+    public void reset() {
+        synchronized (pending) {
+            pending.clear();
+        }
+        agent.reset();
+    }
+
+    // Close the agent
+    @Override
+    public void close() {
+        agent.close();
+    }
+}
@@ -0,0 +1,113 @@
+package graph;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Spreads the delivery of a topic's messages to its subscribers over a shared pool.
+ * Every subscriber has its own lane, a MailboxAgent drained by at most one pool thread at a time,
+ * so each subscriber still receives the messages in publish order while different subscribers
+ * are served in parallel. The publisher only enqueues and returns.
+ */
+public class FanOutDispatcher {
+    private final String topic; // The name of the topic
+    private final Executor executor; // The executor running the lanes
+    private final ConcurrentHashMap<Agent, MailboxAgent> lanes = new ConcurrentHashMap<>(); // The lane of each subscriber
+    private final LatencyStats latency = new LatencyStats(); // Time from enqueue to the end of the callback, over all the lanes
+
+    // Create a dispatcher on the pool shared with the mailbox agents.
+    public FanOutDispatcher(String topic) {
+        this(topic, MailboxAgent.sharedPool());
+    }
+
+    // Create a dispatcher on the given executor.
+    public FanOutDispatcher(String topic, Executor executor) {
+        if (topic == null) {
+            throw new IllegalArgumentException("Topic name cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        this.topic = topic;
+        this.executor = executor;
+    }
+
+    // Enqueue a message for one subscriber
+    public void dispatch(Agent a, Message m) {
+        lanes.computeIfAbsent(a, agent -> new MailboxAgent(new Lane(agent), executor, latency)).callback(topic, m);
+    }
+
+    // Check if a subscriber still has messages in its lane (its next messages must queue behind them)
+    public boolean hasPending(Agent a) {
+        MailboxAgent lane = lanes.get(a);
+        return lane != null && lane.getPendingCount() > 0;
+    }
+
+    // Forget the lane of a subscriber (its pending messages are dropped)
+    public void remove(Agent a) {
+        MailboxAgent lane = lanes.remove(a);
+        if (lane != null) {
+            lane.close();
+        }
+    }
+
+    // Get the number of messages delivered through the lanes
+    public long getDeliveredCount() {
+        return latency.getCount();
+    }
+
+    // Get the average time from enqueue to the end of the callback, in nanoseconds
+    public double getAverageLatencyNanos() {
+        return latency.getAverageNanos();
+    }
+
+    // Get the longest time from enqueue to the end of the callback, in nanoseconds
+    public long getMaxLatencyNanos() {
+        return latency.getMaxNanos();
+    }
+
+    // Get the time from enqueue to the end of the callback, over all the lanes
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    // Get the number of messages waiting in all the lanes
+    public int getPendingCount() {
+        int total = 0;
+        for (MailboxAgent lane : lanes.values()) {
+            total += lane.getPendingCount();
+        }
+        return total;
+    }
+
+    // The agent a lane's mailbox drains into: calls the subscriber, which the lane does not own
+    private static final class Lane implements Agent {
+        private final Agent subscriber; // The subscriber
+
+        Lane(Agent subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        // Called by the mailbox, already in the epoch of the message
+        @Override
+        public void callback(String topic, Message msg) {
+            subscriber.callback(topic, msg);
+        }
+
+        // Get the name of the subscriber
+        @Override
+        public String getName() {
+            return subscriber.getName();
+        }
+
+        // Nothing to reset, the subscriber is reset by its owner
+        @Override
+        public void reset() {
+        }
+
+        // Nothing to close, the subscriber is closed by its owner
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package graph;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency recorder: count, average, maximum and approximate percentiles.
+ * Percentiles come from a histogram with four buckets per power of two, so they are
+ * accurate to within about 20%.
+ */
+public class LatencyStats {
+    private static final int SUB_BUCKETS = 4; // Buckets per power of two
+    private static final int BUCKETS = 64 * SUB_BUCKETS; // Enough for any positive long
+
+    private final LongAdder count = new LongAdder(); // Number of samples
+    private final LongAdder totalNanos = new LongAdder(); // Sum of the samples
+    private final AtomicLong maxNanos = new AtomicLong(); // Largest sample
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS); // Number of samples per bucket
+
+    // Create empty statistics
+    public LatencyStats() {
+    }
+
+    // Record one latency sample
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        histogram.incrementAndGet(bucketOf(nanos));
+    }
+
+    // Get the bucket of a sample
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int power = 63 - Long.numberOfLeadingZeros(nanos); // Position of the highest bit
+        int sub = (int) (nanos >>> (power - 2)) & (SUB_BUCKETS - 1); // The next two bits
+        return power * SUB_BUCKETS + sub;
+    }
+
+    // Get the largest value that falls in a bucket
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int power = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        long base = 1L << power;
+        long step = base / SUB_BUCKETS;
+        return base + step * (sub + 1) - 1;
+    }
+
+    // Get the number of samples
+    public long getCount() {
+        return count.sum();
+    }
+
+    // Get the average latency in nanoseconds
+    public double getAverageNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) totalNanos.sum() / n;
+    }
+
+    // Get the largest latency in nanoseconds
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    // Get the latency below which the given share of the samples fall (e.g. 0.99), in nanoseconds
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1, got: " + percentile);
+        }
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * n);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += histogram.get(bucket);
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBoundOf(bucket), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    // Get the string representation of the statistics
+    @Override
+    public String toString() {
+        return String.format("count=%d avg=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+            getCount(), getAverageNanos() / 1e3, getPercentileNanos(0.5) / 1e3,
+            getPercentileNanos(0.99) / 1e3, getMaxNanos() / 1e3);
+    }
+}
@@ -0,0 +1,126 @@
+package graph;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An actor-style agent that owns a lock-free mailbox and runs on a shared work-stealing pool.
+ * The agent is scheduled only when its mailbox goes from empty to non-empty, and then drains
+ * its messages in bursts. At most one drain runs at a time, so the wrapped agent's callback
+ * never runs concurrently with itself. The shared pool is also the one the other graph components
+ * (fan-out lanes, conflated drains, Flow subscriptions) run on, so they do not compete with
+ * separate pools for the cores.
+ */
+public class MailboxAgent implements Agent {
+    private static final int BURST_SIZE = 64; // Maximum messages handled before yielding the worker thread
+    private static final ForkJoinPool SHARED_POOL = new ForkJoinPool(
+        Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true); // Shared pool in FIFO mode
+
+    private final Agent agent; // The wrapped agent
+    private final Executor executor; // The executor running the drains
+    private final LatencyStats latency; // Time from arrival to the end of the callback, or null if not measured
+    private final ConcurrentLinkedQueue<Delivery> mailbox = new ConcurrentLinkedQueue<>(); // The pending messages
+    private final AtomicInteger pending = new AtomicInteger(); // Number of messages not yet handled
+    private final Runnable drain = this::drain; // The drain task, reused every time the agent is scheduled
+    private volatile boolean closed = false; // Whether the agent was closed
+
+    // Create a mailbox agent on the shared pool.
+    public MailboxAgent(Agent agent) {
+        this(agent, SHARED_POOL);
+    }
+
+    // Create a mailbox agent on the given executor.
+    public MailboxAgent(Agent agent, Executor executor) {
+        this(agent, executor, null);
+    }
+
+    // Create a mailbox agent on the given executor that records the latency of its messages (null = not measured).
+    public MailboxAgent(Agent agent, Executor executor, LatencyStats latency) {
+        if (agent == null) {
+            throw new IllegalArgumentException("Agent cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        this.agent = agent;
+        this.executor = executor;
+        this.latency = latency;
+    }
+
+    // Get the shared pool the mailbox agents run on by default
+    static Executor sharedPool() {
+        return SHARED_POOL;
+    }
+
+    // Called when a message is received on a subscribed topic
+    @Override
+    public void callback(String topic, Message msg) {
+        if (closed) {
+            return;
+        }
+        mailbox.offer(new Delivery(topic, msg, latency == null ? 0 : System.nanoTime()));
+        if (pending.getAndIncrement() == 0) { // The mailbox was empty, so no drain is running
+            executor.execute(drain);
+        }
+    }
+
+    // Handle up to a burst of messages, and schedule another drain if more are left
+    private void drain() {
+        for (int handled = 0; handled < BURST_SIZE; handled++) {
+            Delivery next = mailbox.poll();
+            if (next != null && !closed) {
+                try {
+                    Epoch.deliver(agent, next.topic, next.msg);
+                } catch (Exception e) {
+                    // Continue with the next message even if this one fails
+                }
+                if (latency != null) {
+                    latency.record(System.nanoTime() - next.arrivedAt);
+                }
+            }
+            if (pending.decrementAndGet() == 0) { // The mailbox is empty, the next message schedules a new drain
+                return;
+            }
+        }
+        executor.execute(drain); // Yield the worker thread to other agents
+    }
+
+    // Get the number of messages waiting in the mailbox
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return agent.getName();
+    }
+
+    // Reset the agent
+    @Override
+    public void reset() {
+        agent.reset();
+    }
+
+    // Close the agent
+    @Override
+    public void close() {
+        closed = true;
+        agent.close();
+    }
+
+    // A message waiting in the mailbox, with the time it arrived (0 if not measured)
+    private static final class Delivery {
+        final String topic;
+        final Message msg;
+        final long arrivedAt;
+
+        Delivery(String topic, Message msg, long arrivedAt) {
+            this.topic = topic;
+            this.msg = msg;
+            this.arrivedAt = arrivedAt;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded set-associative cache from fixed-width long tuples to fixed-width double tuples.
+ * Entries live in flat primitive arrays. A key can only go to the ways of one set, and when all
+ * of them are taken the least recently used one is evicted, so lookups and inserts touch at most
+ * WAYS entries. The cache is not thread-safe; the owner guards it. The counters can be read from
+ * any thread.
+ */
+public final class MemoCache {
+    private static final int WAYS = 4; // Entries per set
+    private static final long MIX = 0x9E3779B97F4A7C15L; // Fibonacci hashing multiplier
+
+    private final int keyWidth; // Longs per key
+    private final int valueWidth; // Doubles per value
+    private final int setMask; // Number of sets minus one (a power of two minus one)
+    private final long[] keys; // The key of every entry, keyWidth longs each
+    private final double[] values; // The value of every entry, valueWidth doubles each
+    private final long[] lastUsed; // When every entry was last used (0 = empty)
+    private long clock = 0; // Advances on every use, orders the entries of a set
+    private int size = 0; // Number of entries
+    private final LongAdder hits = new LongAdder(); // Lookups that found their key
+    private final LongAdder misses = new LongAdder(); // Lookups that did not
+    private final LongAdder evictions = new LongAdder(); // Entries dropped to make room
+
+    // Create a cache holding at least the given number of entries (rounded up to whole sets of a power of two).
+    public MemoCache(int keyWidth, int valueWidth, int capacity) {
+        if (keyWidth < 1 || valueWidth < 1) {
+            throw new IllegalArgumentException("Key and value widths must be at least 1, got: " + keyWidth + ", " + valueWidth);
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1, got: " + capacity);
+        }
+        this.keyWidth = keyWidth;
+        this.valueWidth = valueWidth;
+        int sets = 1;
+        while (sets * WAYS < capacity) {
+            sets <<= 1;
+        }
+        this.setMask = sets - 1;
+        this.keys = new long[sets * WAYS * keyWidth];
+        this.values = new double[sets * WAYS * valueWidth];
+        this.lastUsed = new long[sets * WAYS];
+    }
+
+    // Get the first entry of the set of a key
+    private int setOf(long[] key) {
+        long h = 0;
+        for (long part : key) {
+            h = (h ^ part) * MIX;
+        }
+        h ^= h >>> 33; // Doubles differ in their top bits, so fold them into the bottom ones the set is taken from
+        h *= MIX;
+        h ^= h >>> 33;
+        return (int) (h & setMask) * WAYS;
+    }
+
+    // Check if an entry holds the given key
+    private boolean matches(int entry, long[] key) {
+        int base = entry * keyWidth;
+        for (int i = 0; i < keyWidth; i++) {
+            if (keys[base + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Look a key up; on a hit, copy its value into out and return true
+    public boolean get(long[] key, double[] out) {
+        int first = setOf(key);
+        for (int entry = first; entry < first + WAYS; entry++) {
+            if (lastUsed[entry] != 0 && matches(entry, key)) {
+                lastUsed[entry] = ++clock;
+                System.arraycopy(values, entry * valueWidth, out, 0, valueWidth);
+                hits.increment();
+                return true;
+            }
+        }
+        misses.increment();
+        return false;
+    }
+
+    // Store the value of a key, replacing its old value, an empty entry, or the least recently used entry of its set
+    public void put(long[] key, double[] value) {
+        int first = setOf(key);
+        int target = first;
+        for (int entry = first; entry < first + WAYS; entry++) {
+            if (lastUsed[entry] != 0 && matches(entry, key)) {
+                target = entry;
+                break;
+            }
+            if (lastUsed[entry] < lastUsed[target]) {
+                target = entry;
+            }
+        }
+        if (lastUsed[target] == 0) {
+            size++;
+        } else if (!matches(target, key)) {
+            evictions.increment();
+        }
+        System.arraycopy(key, 0, keys, target * keyWidth, keyWidth);
+        System.arraycopy(value, 0, values, target * valueWidth, valueWidth);
+        lastUsed[target] = ++clock;
+    }
+
+    // Remove every entry (the counters are kept)
+    public void clear() {
+        Arrays.fill(lastUsed, 0);
+        size = 0;
+    }
+
+    // Get the number of entries
+    public int size() {
+        return size;
+    }
+
+    // Get the largest number of entries
+    public int capacity() {
+        return lastUsed.length;
+    }
+
+    // Get the number of lookups that found their key
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    // Get the number of lookups that did not find their key
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    // Get the number of entries dropped to make room for others
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    // Get the share of lookups that found their key
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
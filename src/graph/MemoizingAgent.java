@@ -0,0 +1,142 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Caches the outputs of a pure agent by its input tuple.
+ * The tuple is the latest numeric value of every input, plus which input just arrived. On a hit
+ * the cached values are published and the agent is not called. On a miss the agent runs, its
+ * publishes are captured, published, and cached when they are plain numbers on its output topics.
+ * The agent does not see the inputs that hit the cache, so before the next miss the inputs it
+ * missed are replayed to it muted, and it computes from the same tuple as the cache.
+ */
+public class MemoizingAgent implements Agent {
+    private static final long MISSING = 0x7ff8dead00000000L; // Key part of an input that never received a value (a NaN no double compares to)
+
+    private final Agent agent; // The wrapped agent
+    private final String[] inputs; // The input topic names, in tuple order
+    private final String[] outputs; // The output topic names, in cached value order
+    private final MemoCache cache; // The outputs of every cached tuple
+    private final Message[] latest; // The latest message of every input
+    private final boolean[] stale; // Whether the agent missed the latest message of an input (it hit the cache)
+    private final long[] key; // The tuple being looked up
+    private final double[] cached; // The outputs of a hit, or of the miss being cached (NaN = not published)
+
+    // Create a memoizing agent for an agent with the given input and output topics and cache capacity.
+    public MemoizingAgent(Agent agent, String[] subs, String[] pubs, int capacity) {
+        if (agent == null) {
+            throw new IllegalArgumentException("Agent cannot be null");
+        }
+        if (subs == null || subs.length == 0 || pubs == null || pubs.length == 0) {
+            throw new IllegalArgumentException("Memoized agent " + agent.getName() + " needs inputs and outputs");
+        }
+        this.agent = agent;
+        this.inputs = new String[subs.length];
+        for (int i = 0; i < subs.length; i++) {
+            inputs[i] = TopicManagerSingleton.get().getTopic(subs[i]).name;
+        }
+        this.outputs = new String[pubs.length];
+        for (int i = 0; i < pubs.length; i++) {
+            outputs[i] = TopicManagerSingleton.get().getTopic(pubs[i]).name;
+        }
+        this.cache = new MemoCache(inputs.length + 1, outputs.length, capacity);
+        this.latest = new Message[inputs.length];
+        this.stale = new boolean[inputs.length];
+        this.key = new long[inputs.length + 1];
+        this.cached = new double[outputs.length];
+    }
+
+    // Called when a message is received on a subscribed topic
+    @Override
+    public synchronized void callback(String topic, Message msg) {
+        int input = indexOf(inputs, topic);
+        if (input < 0 || Epoch.isMuted() || msg.isKeyed() || Double.isNaN(msg.asDouble)) { // Not a plain number: the agent decides
+            catchUp(input);
+            Epoch.deliver(agent, topic, msg);
+            if (input >= 0) {
+                latest[input] = msg;
+                stale[input] = false;
+            }
+            return;
+        }
+        latest[input] = msg;
+        key[0] = input;
+        for (int i = 0; i < inputs.length; i++) {
+            key[i + 1] = latest[i] == null ? MISSING : Double.doubleToLongBits(latest[i].asDouble);
+        }
+        if (cache.get(key, cached)) {
+            stale[input] = true;
+            for (int i = 0; i < outputs.length; i++) {
+                if (!Double.isNaN(cached[i])) {
+                    TopicManagerSingleton.get().getTopic(outputs[i]).publish(new Message(cached[i]));
+                }
+            }
+            return;
+        }
+        catchUp(input);
+        stale[input] = false;
+        List<Envelope> published = Epoch.deliverCaptured(agent, topic, msg);
+        boolean cacheable = true;
+        Arrays.fill(cached, Double.NaN);
+        for (Envelope e : published) {
+            TopicManagerSingleton.get().getTopic(e.topic).publish(e.msg);
+            int output = indexOf(outputs, e.topic);
+            if (output < 0 || !Double.isNaN(cached[output]) || e.msg.isKeyed() || !e.msg.isValidDouble()
+                || !e.msg.asText.equals(Double.toString(e.msg.asDouble))) { // Only what republishing the number reproduces
+                cacheable = false;
+            } else {
+                cached[output] = e.msg.asDouble;
+            }
+        }
+        if (cacheable) {
+            cache.put(key, cached);
+        }
+    }
+
+    // Replay to the agent, muted, the latest message of every input it missed (except the one about to be delivered)
+    private void catchUp(int except) {
+        for (int i = 0; i < inputs.length; i++) {
+            if (stale[i] && i != except) {
+                Epoch.deliverMuted(agent, inputs[i], latest[i]);
+                stale[i] = false;
+            }
+        }
+    }
+
+    // Get the index of a topic name in an array, or -1
+    private static int indexOf(String[] names, String topic) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(topic)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Get the output cache of the agent
+    public MemoCache getCache() {
+        return cache;
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return agent.getName();
+    }
+
+    // Reset the agent and forget the cached outputs
+    @Override
+    public synchronized void reset() {
+        cache.clear();
+        Arrays.fill(latest, null);
+        Arrays.fill(stale, false);
+        agent.reset();
+    }
+
+    // Close the agent
+    @Override
+    public void close() {
+        agent.close();
+    }
+}
@@ -1,6 +1,7 @@
 package graph;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
 
 /**
@@ -10,16 +11,24 @@ import java.util.Date;
 public class Message {
     private static final int MAX_MESSAGE_LENGTH = 10000; // 10KB limit for message content
     private static final int MAX_BYTE_ARRAY_SIZE = 1024 * 1024; // 1MB limit for byte arrays
+    public static final long NO_KEY = Long.MIN_VALUE; // The key of messages that do not belong to a keyed entity
     
     public final byte[] data; // The data of the message
     public final String asText; // The text of the message
     public final double asDouble; // The double value of the message
     public final Date date; // The date of the message
+    public final Epoch epoch; // The external publish this message derives from, or null
+    public final long key; // The entity (e.g. device) the value belongs to, or NO_KEY
 
     //Constructors:
 
     // Constructor with only String parameter
     public Message(String input) {
+        this(input, NO_KEY);
+    }
+
+    // Constructor with a String and the key of the entity the value belongs to
+    public Message(String input, long key) {
         if (input == null) {
             throw new IllegalArgumentException("Message input cannot be null");
         }
@@ -44,6 +53,8 @@ public class Message {
             }
             this.asDouble = tempDouble;
             this.date = new Date();
+            this.epoch = Epoch.current(); // Inherit the epoch of the message being handled
+            this.key = key;
             
         } catch (Exception e) {
             throw new RuntimeException("Error creating message from string", e);
@@ -52,7 +63,22 @@ public class Message {
 
     // Constructor with double parameter
     public Message(double asDouble) {
-        this(validateAndConvertDouble(asDouble));
+        this(asDouble, NO_KEY);
+    }
+    
+    // Constructor with a double and the key of the entity the value belongs to
+    public Message(double asDouble, long key) {
+        this(validateAndConvertDouble(asDouble), asDouble, key);
+    }
+
+    // Constructor with the text of a double and the double itself, so the text is not parsed back
+    private Message(String text, double asDouble, long key) {
+        this.data = text.getBytes(StandardCharsets.UTF_8);
+        this.asText = text;
+        this.asDouble = asDouble;
+        this.date = new Date();
+        this.epoch = Epoch.current(); // Inherit the epoch of the message being handled
+        this.key = key;
     }
     
     // Constructor with byte array parameter
@@ -65,6 +91,16 @@ public class Message {
         this(Byte.toString(input));
     }
     
+    // Copy a message into a given epoch
+    Message(Message other, Epoch epoch) {
+        this.data = other.data;
+        this.asText = other.asText;
+        this.asDouble = other.asDouble;
+        this.date = other.date;
+        this.epoch = epoch;
+        this.key = other.key;
+    }
+    
     // Helper methods for validation
    
     // Validate and convert a double value to a string
@@ -97,6 +133,16 @@ public class Message {
         return !Double.isNaN(asDouble) && !Double.isInfinite(asDouble);
     }
     
+    // Check if the message carries the same value (byte for byte) for the same key as another message, ignoring the date
+    public boolean hasSameValue(Message other) {
+        return other != null && key == other.key && Arrays.equals(data, other.data);
+    }
+    
+    // Check if the message belongs to a keyed entity
+    public boolean isKeyed() {
+        return key != NO_KEY;
+    }
+    
     // Check if the message is empty
     public boolean isEmpty() {
         return asText == null || asText.trim().isEmpty();
@@ -129,6 +175,16 @@ public class Message {
         return date != null ? new Date(date.getTime()) : null; // Return defensive copy
     }
     
+    // Get the epoch of the message
+    public Epoch getEpoch() {
+        return epoch;
+    }
+    
+    // Get the key of the message (NO_KEY if it is not keyed)
+    public long getKey() {
+        return key;
+    }
+    
     // Convert the message to a string
     @Override
     public String toString() {
@@ -137,6 +193,7 @@ public class Message {
                ", double=" + asDouble +
                ", date=" + date +
                ", length=" + getLength() +
+               (isKeyed() ? ", key=" + key : "") +
                '}';
     }
     
@@ -149,6 +206,7 @@ public class Message {
         Message message = (Message) obj;
         
         if (Double.compare(message.asDouble, asDouble) != 0) return false;
+        if (message.key != key) return false;
         if (asText != null ? !asText.equals(message.asText) : message.asText != null) return false;
         return date != null ? date.equals(message.date) : message.date == null; 
     }
@@ -162,6 +220,7 @@ public class Message {
         temp = Double.doubleToLongBits(asDouble);
         result = 31 * result + (int) (temp ^ (temp >>> 32));
         result = 31 * result + (date != null ? date.hashCode() : 0);
+        result = 31 * result + Long.hashCode(key);
         return result;
     }
 }
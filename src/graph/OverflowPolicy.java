@@ -0,0 +1,26 @@
+package graph;
+
+/**
+ * What a ParallelAgent does with a new message when its queue is full.
+ */
+public enum OverflowPolicy {
+    BLOCK, // Wait until there is room in the queue
+    BLOCK_WITH_TIMEOUT, // Wait up to a timeout, then drop the new message
+    DROP_NEWEST, // Drop the new message
+    DROP_OLDEST, // Drop the oldest queued message to make room
+    CONFLATE; // Replace the queued messages of the same topic, so only the latest value is kept
+
+    // Parse an overflow policy from a string (case-insensitive, '-' and '_' are interchangeable).
+    public static OverflowPolicy fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Overflow policy cannot be null or empty");
+        }
+        String normalized = value.trim().replace('-', '_');
+        for (OverflowPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(normalized)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown overflow policy: " + value);
+    }
+}
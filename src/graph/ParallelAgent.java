@@ -2,52 +2,108 @@ package graph;
 
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A parallel agent that runs in a separate thread and processes messages from a queue.
  */
 public class ParallelAgent implements Agent{
     Agent agent; // The agent to run in parallel
-    BlockingQueue<Message> queue; // The queue to store messages
-    boolean stop = false; // Whether to stop the agent
+    BlockingQueue<Envelope> queue; // The queue to store messages with their topics
+    volatile boolean stop = false; // Whether to stop the agent
     Thread t; // The thread to run the agent
+    final OverflowPolicy policy; // What to do when the queue is full
+    final long blockTimeoutMillis; // How long BLOCK_WITH_TIMEOUT waits for room in the queue
+    private final AtomicLong droppedCount = new AtomicLong(); // Messages dropped because the queue was full
+    private final AtomicLong blockedCount = new AtomicLong(); // Publishes that had to wait for room in the queue
+    private final Object replaceLock = new Object(); // Makes the queue edits of DROP_OLDEST and CONFLATE atomic among publishers
     
     // Constructor
     public ParallelAgent(Agent agent, int capacity) {
+    	this(agent, capacity, false);
+    }
+    
+    // Constructor choosing between a platform thread and a virtual thread for the agent
+    public ParallelAgent(Agent agent, int capacity, boolean virtualThread) {
+    	this(agent, capacity, virtualThread, OverflowPolicy.BLOCK, 0);
+    }
+    
+    // Constructor with the overflow policy of the queue
+    public ParallelAgent(Agent agent, int capacity, boolean virtualThread, OverflowPolicy policy, long blockTimeoutMillis) {
+    	if (policy == null) {
+    		throw new IllegalArgumentException("Overflow policy cannot be null");
+    	}
+    	if (blockTimeoutMillis < 0) {
+    		throw new IllegalArgumentException("Block timeout cannot be negative: " + blockTimeoutMillis);
+    	}
     	this.agent = agent;
-    	this.queue = new ArrayBlockingQueue<Message>(capacity);
-    	t = new Thread(()->{ // Create a new thread to run the agent
-    		String[] parts; // The parts of the message
+    	this.queue = new ArrayBlockingQueue<Envelope>(capacity);
+    	this.policy = policy;
+    	this.blockTimeoutMillis = blockTimeoutMillis;
+    	Runnable loop = ()->{ // The loop that runs the agent
     		while(!stop) { // While the agent is not stopped
-					Message msg;
 					try {
-						msg = this.queue.take(); // Take a message from the queue
-			    		parts = msg.asText.split(",", 2); // Split the message into parts
-			            if (parts.length < 2) { // If the message is not valid
-			                throw new IllegalArgumentException("Invalid message format: Topic and message not found.");
-			            }
-			            
-			            String topic = parts[0].trim(); // Get the topic from the message
-			            Message msg1 = new Message(parts[1].trim()); // Create a new message with the topic and message
-			            this.agent.callback(topic, msg1); // Call the agent's callback method
+						Envelope envelope = this.queue.take(); // Take a message from the queue
+						Epoch.deliver(this.agent, envelope.topic, envelope.msg); // Hand the original message to the agent
 					} catch (InterruptedException e) {
+						// Woken up by close, the loop checks the stop flag
+					} catch (Exception e) {
+						// Continue with the next message even if this one fails
 					}
     		}
-    	});
+    	};
+    	String threadName = "ParallelAgent-" + agent.getName();
+    	t = virtualThread ? Thread.ofVirtual().name(threadName).unstarted(loop) : new Thread(loop, threadName);
     	t.start(); 
     }
     
     // Callback method
     @Override
     public void callback(String topic, Message msg) {
-    	String combinedText = topic + "," + msg.asText;
-        Message newMessage = new Message(combinedText);
+    	Envelope envelope = new Envelope(topic, msg);
+    	if (policy == OverflowPolicy.CONFLATE || policy == OverflowPolicy.DROP_OLDEST) {
+    		replace(envelope);
+    		return;
+    	}
+    	if (queue.offer(envelope)) { // There was room in the queue
+    		return;
+    	}
         try {
-			queue.put(newMessage);
+			switch (policy) {
+				case BLOCK:
+					blockedCount.incrementAndGet();
+					queue.put(envelope);
+					break;
+				case BLOCK_WITH_TIMEOUT:
+					blockedCount.incrementAndGet();
+					if (!queue.offer(envelope, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+						droppedCount.incrementAndGet();
+					}
+					break;
+				default: // DROP_NEWEST
+					droppedCount.incrementAndGet();
+					break;
+			}
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
     }
 
+    // Queue a message in place of the value it supersedes (CONFLATE) or of the oldest one when full, as one step
+    private void replace(Envelope envelope) {
+    	synchronized (replaceLock) { // The consumer may still take concurrently, which only makes room
+    		if (policy == OverflowPolicy.CONFLATE && queue.removeIf(queued -> queued.topic.equals(envelope.topic))) {
+    			droppedCount.incrementAndGet(); // Older values of the same topic are superseded by this one
+    		}
+    		while (!queue.offer(envelope)) { // Make room by dropping the oldest queued message
+    			if (queue.poll() != null) {
+    				droppedCount.incrementAndGet();
+    			}
+    		}
+    	}
+    }
+
 	// Get the name of the agent
 	@Override
 	public String getName() {
@@ -60,6 +116,31 @@ public class ParallelAgent implements Agent{
 		this.agent.reset();
 	}
 
+	// Get the overflow policy of the queue
+	public OverflowPolicy getOverflowPolicy() {
+		return policy;
+	}
+
+	// Get the number of messages dropped because the queue was full
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	// Get the number of publishes that had to wait for room in the queue
+	public long getBlockedCount() {
+		return blockedCount.get();
+	}
+
+	// Get the number of messages waiting in the queue
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	// Check if the agent runs on a virtual thread
+	public boolean isVirtual() {
+		return t.isVirtual();
+	}
+
 	// Close the agent
 	@Override
 	public void close() {
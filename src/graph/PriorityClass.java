@@ -0,0 +1,22 @@
+package graph;
+
+/**
+ * The scheduling classes of the priority lanes.
+ */
+public enum PriorityClass {
+    HIGH, // Latency-critical work, always served first
+    LOW; // Bulk work, served when no high-priority work is waiting (or by the starvation guard)
+
+    // Parse a priority class from a string (case-insensitive).
+    public static PriorityClass fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Priority class cannot be null or empty");
+        }
+        for (PriorityClass priority : values()) {
+            if (priority.name().equalsIgnoreCase(value.trim())) {
+                return priority;
+            }
+        }
+        throw new IllegalArgumentException("Unknown priority class: " + value);
+    }
+}
@@ -0,0 +1,129 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Schedules agents on a pool of worker threads with one queue per priority class.
+ * Workers always take high-priority work first. A starvation guard still lets one low-priority
+ * drain through after a run of high-priority ones, or when no low-priority drain has run for
+ * too long. Every agent is a MailboxAgent whose drains go in the queue of its class, so it is
+ * drained by at most one worker at a time, and the latency from message arrival to the end of
+ * its callback is recorded per class.
+ */
+public class PriorityScheduler {
+    private static final int HIGH_RUN_LIMIT = 8; // High-priority drains in a row before a waiting low-priority drain is let through
+
+    private final ArrayDeque<Runnable> highQueue = new ArrayDeque<>(); // Waiting drains of the high-priority agents
+    private final ArrayDeque<Runnable> lowQueue = new ArrayDeque<>(); // Waiting drains of the low-priority agents
+    private final Object lock = new Object(); // Guards both queues
+    private final Thread[] workers; // The worker threads
+    private final long maxLowWaitNanos; // Longest a low-priority drain waits while high-priority work keeps coming
+    private final Map<PriorityClass, LatencyStats> latency = new EnumMap<>(PriorityClass.class); // Message latency per class
+    private int highRun = 0; // High-priority drains taken in a row while low-priority work was waiting
+    private long lastLowAt = System.nanoTime(); // When a low-priority drain was last taken (or the low queue was last empty)
+    private volatile boolean stopped = false; // Whether the scheduler was closed
+
+    // Create a scheduler with the given number of workers and starvation limit for the low-priority class.
+    public PriorityScheduler(int workerCount, long maxLowWaitMillis) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1, got: " + workerCount);
+        }
+        if (maxLowWaitMillis < 0) {
+            throw new IllegalArgumentException("Maximum low-priority wait cannot be negative: " + maxLowWaitMillis);
+        }
+        this.maxLowWaitNanos = maxLowWaitMillis * 1_000_000L;
+        for (PriorityClass priority : PriorityClass.values()) {
+            latency.put(priority, new LatencyStats());
+        }
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "PriorityScheduler-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    // Wrap an agent so its messages are handled by the workers in the given class.
+    public Agent bind(Agent agent, PriorityClass priority) {
+        if (agent == null) {
+            throw new IllegalArgumentException("Agent cannot be null");
+        }
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority class cannot be null");
+        }
+        return new MailboxAgent(agent, drain -> schedule(priority, drain), latency.get(priority)); // A drain goes in its class's queue
+    }
+
+    // Get the message latency statistics of a class
+    public LatencyStats getLatency(PriorityClass priority) {
+        return latency.get(priority);
+    }
+
+    // Get the number of drains waiting in the queue of a class
+    public int getQueuedCount(PriorityClass priority) {
+        synchronized (lock) {
+            return priority == PriorityClass.HIGH ? highQueue.size() : lowQueue.size();
+        }
+    }
+
+    // Stop the workers
+    public void close() {
+        stopped = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    // Queue a drain in its class
+    private void schedule(PriorityClass priority, Runnable drain) {
+        synchronized (lock) {
+            if (priority == PriorityClass.HIGH) {
+                highQueue.add(drain);
+            } else {
+                if (lowQueue.isEmpty()) {
+                    lastLowAt = System.nanoTime(); // The wait starts now
+                }
+                lowQueue.add(drain);
+            }
+            lock.notify();
+        }
+    }
+
+    // Take the next drain: high priority first, unless the low-priority class has waited too long
+    private Runnable take() throws InterruptedException {
+        synchronized (lock) {
+            while (highQueue.isEmpty() && lowQueue.isEmpty()) {
+                lock.wait();
+            }
+            boolean lowWaiting = !lowQueue.isEmpty();
+            boolean starving = lowWaiting
+                && (highRun >= HIGH_RUN_LIMIT || System.nanoTime() - lastLowAt > maxLowWaitNanos);
+            if (!highQueue.isEmpty() && !starving) {
+                highRun = lowWaiting ? highRun + 1 : 0;
+                return highQueue.poll();
+            }
+            highRun = 0;
+            lastLowAt = System.nanoTime();
+            return lowQueue.poll();
+        }
+    }
+
+    // The loop of a worker thread
+    private void work() {
+        while (!stopped) {
+            Runnable drain;
+            try {
+                drain = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                drain.run();
+            } catch (Exception e) {
+                // Keep the worker alive even if a drain fails
+            }
+        }
+    }
+}
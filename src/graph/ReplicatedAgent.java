@@ -0,0 +1,326 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Runs a stateless agent as several replicas that share one input stream.
+ * Every input gets a sequence number; the replicas take the inputs from a shared queue, and
+ * what each replica publishes is held back and published in input order once every earlier
+ * input has been handled. Replicas are added while the queue keeps growing, and retire after
+ * staying idle, down to the minimum. The queue is bounded, and the overflow policy decides what
+ * happens to an input when it is full; a queued input that is dropped takes its turn with no output.
+ */
+public class ReplicatedAgent implements Agent {
+    private static final Logger LOGGER = Logger.getLogger(ReplicatedAgent.class.getName());
+    private static final int SCALE_UP_DEPTH = 16; // Waiting inputs per replica above which another replica is started
+    private static final long IDLE_RETIRE_MILLIS = 1000; // Idle time after which a replica above the minimum retires
+
+    private final Agent agent; // The original agent, also the first replica
+    private final Supplier<Agent> factory; // Creates the other replicas
+    private final int minReplicas; // Replicas always running
+    private final int maxReplicas; // Most replicas running at once
+    private final OverflowPolicy policy; // What to do with an input when the queue is full
+    private final long blockTimeoutMillis; // How long BLOCK_WITH_TIMEOUT waits for room in the queue
+    private final int scaleUpDepth; // Waiting inputs per replica above which another replica is started
+    private final LinkedBlockingQueue<Task> queue; // Inputs waiting for a replica
+    private final Object enqueueLock = new Object(); // Numbers and queues the inputs one at a time (never held by the workers)
+    private final AtomicLong droppedCount = new AtomicLong(); // Inputs dropped because the queue was full
+    private final AtomicLong blockedCount = new AtomicLong(); // Inputs that had to wait for room in the queue
+    private final LinkedBlockingQueue<Agent> idleReplicas = new LinkedBlockingQueue<>(); // Replicas not attached to a worker
+    private final List<Agent> allReplicas = new ArrayList<>(); // Every replica created, to close them
+    private final AtomicInteger running = new AtomicInteger(); // Number of running workers
+    private final Object mergeLock = new Object(); // Guards the reorder buffer and serializes the publishes
+    private final TreeMap<Long, List<Envelope>> completed = new TreeMap<>(); // Outputs of inputs handled out of order, by sequence
+    private long nextSequence = 0; // Sequence number of the next input (guarded by enqueueLock)
+    private long nextToPublish = 0; // Sequence number whose outputs are published next
+    private volatile boolean closed = false; // Whether the agent was closed
+
+    // Create a replicated agent with an input queue of 1024 that makes the publisher wait when full.
+    public ReplicatedAgent(Agent agent, Supplier<Agent> factory, int minReplicas, int maxReplicas) {
+        this(agent, factory, minReplicas, maxReplicas, 1024, OverflowPolicy.BLOCK, 0);
+    }
+
+    // Create a replicated agent; the factory creates replicas of the agent that are not subscribed to anything.
+    public ReplicatedAgent(Agent agent, Supplier<Agent> factory, int minReplicas, int maxReplicas,
+                           int capacity, OverflowPolicy policy, long blockTimeoutMillis) {
+        if (agent == null) {
+            throw new IllegalArgumentException("Agent cannot be null");
+        }
+        if (factory == null) {
+            throw new IllegalArgumentException("Replica factory cannot be null");
+        }
+        if (minReplicas < 1 || maxReplicas < minReplicas) {
+            throw new IllegalArgumentException("Replica counts must satisfy 1 <= min <= max, got: " + minReplicas + ", " + maxReplicas);
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1, got: " + capacity);
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Overflow policy cannot be null");
+        }
+        if (blockTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Block timeout cannot be negative: " + blockTimeoutMillis);
+        }
+        this.agent = agent;
+        this.factory = factory;
+        this.minReplicas = minReplicas;
+        this.maxReplicas = maxReplicas;
+        this.policy = policy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.scaleUpDepth = Math.max(1, Math.min(SCALE_UP_DEPTH, capacity / maxReplicas)); // A small queue still scales up to the maximum
+        idleReplicas.add(agent);
+        allReplicas.add(agent);
+        for (int i = 0; i < minReplicas; i++) {
+            startWorker();
+        }
+    }
+
+    // Called when a message is received on a subscribed topic
+    @Override
+    public void callback(String topic, Message msg) {
+        if (closed) {
+            return;
+        }
+        boolean muted = Epoch.isMuted();
+        try {
+            synchronized (enqueueLock) { // Sequence numbers follow the order the inputs are queued in
+                Task task = new Task(nextSequence, topic, msg, muted);
+                if (enqueue(task)) {
+                    nextSequence++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int workers = running.get();
+        if (workers < maxReplicas && queue.size() > workers * scaleUpDepth) {
+            startWorker();
+        }
+    }
+
+    // Queue an input as the overflow policy says, returns false if it was dropped (guarded by enqueueLock)
+    private boolean enqueue(Task task) throws InterruptedException {
+        if (policy == OverflowPolicy.CONFLATE) { // Older inputs of the same topic are superseded by this one
+            Iterator<Task> queued = queue.iterator();
+            while (queued.hasNext()) {
+                Task older = queued.next();
+                if (older.topic.equals(task.topic)) {
+                    queued.remove();
+                    skip(older);
+                }
+            }
+        }
+        if (queue.offer(task)) { // There was room in the queue
+            return true;
+        }
+        switch (policy) {
+            case BLOCK:
+                blockedCount.incrementAndGet();
+                queue.put(task);
+                return true;
+            case BLOCK_WITH_TIMEOUT:
+                blockedCount.incrementAndGet();
+                if (queue.offer(task, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                droppedCount.incrementAndGet();
+                return false;
+            case DROP_NEWEST:
+                droppedCount.incrementAndGet();
+                return false;
+            default: // DROP_OLDEST and CONFLATE make room by dropping the oldest queued input
+                while (!queue.offer(task)) {
+                    Task oldest = queue.poll();
+                    if (oldest != null) {
+                        skip(oldest);
+                    }
+                }
+                return true;
+        }
+    }
+
+    // Drop a queued input; it still takes its turn, with no output, so the later outputs are not held back
+    private void skip(Task task) {
+        droppedCount.incrementAndGet();
+        complete(task.sequence, List.of());
+    }
+
+    // Start a worker with an idle replica (creating one if needed), unless the maximum is reached
+    private void startWorker() {
+        int workers;
+        do {
+            workers = running.get();
+            if (workers >= maxReplicas) {
+                return;
+            }
+        } while (!running.compareAndSet(workers, workers + 1));
+
+        Agent replica = idleReplicas.poll();
+        if (replica == null) {
+            try {
+                replica = factory.get();
+            } catch (Exception e) {
+                running.decrementAndGet();
+                LOGGER.warning("Could not create a replica of " + agent.getName() + ": " + e.getMessage());
+                return;
+            }
+            synchronized (allReplicas) {
+                allReplicas.add(replica);
+            }
+        }
+        final Agent worker = replica;
+        Thread thread = new Thread(() -> work(worker), "Replica-" + agent.getName() + "-" + (workers + 1));
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // The loop of a worker: handle inputs until closed, or until idle for too long above the minimum
+    private void work(Agent replica) {
+        try {
+            while (!closed) {
+                Task task = queue.poll(IDLE_RETIRE_MILLIS, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    if (retire()) {
+                        return;
+                    }
+                    continue;
+                }
+                List<Envelope> outputs = List.of();
+                try {
+                    if (task.muted) {
+                        Epoch.deliverMuted(replica, task.topic, task.msg);
+                    } else {
+                        outputs = Epoch.deliverCaptured(replica, task.topic, task.msg);
+                    }
+                } catch (Exception e) {
+                    outputs = List.of(); // The input still takes its turn, with no output
+                }
+                complete(task.sequence, outputs);
+            }
+        } catch (InterruptedException e) {
+            // Closed while waiting for an input
+        } finally {
+            idleReplicas.add(replica);
+        }
+    }
+
+    // Retire the current worker if more than the minimum are running
+    private boolean retire() {
+        int workers;
+        do {
+            workers = running.get();
+            if (workers <= minReplicas) {
+                return false;
+            }
+        } while (!running.compareAndSet(workers, workers - 1));
+        return true;
+    }
+
+    // Record the outputs of an input, and publish every output that is now in order
+    private void complete(long sequence, List<Envelope> outputs) {
+        synchronized (mergeLock) {
+            completed.put(sequence, outputs);
+            while (!completed.isEmpty() && completed.firstKey() == nextToPublish) {
+                for (Envelope output : completed.pollFirstEntry().getValue()) {
+                    try {
+                        TopicManagerSingleton.get().getTopic(output.topic).publish(output.msg);
+                    } catch (Exception e) {
+                        // Continue with the other outputs even if one fails
+                    }
+                }
+                nextToPublish++;
+            }
+        }
+    }
+
+    // Get the number of running replicas
+    public int getReplicaCount() {
+        return running.get();
+    }
+
+    // Get the number of inputs waiting for a replica
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // Get the overflow policy of the queue
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    // Get the number of inputs dropped because the queue was full
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    // Get the number of inputs that had to wait for room in the queue
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    // Get the number of handled inputs whose outputs wait for an earlier input
+    public int getReorderBufferSize() {
+        synchronized (mergeLock) {
+            return completed.size();
+        }
+    }
+
+    // Get the name of the agent
+    @Override
+    public String getName() {
+        return agent.getName();
+    }
+
+    // Reset every replica
+    @Override
+    public void reset() {
+        synchronized (allReplicas) {
+            for (Agent replica : allReplicas) {
+                replica.reset();
+            }
+        }
+    }
+
+    // Close every replica and stop the workers
+    @Override
+    public void close() {
+        closed = true;
+        queue.clear();
+        synchronized (allReplicas) {
+            for (Agent replica : allReplicas) {
+                replica.close();
+            }
+        }
+    }
+
+    // An input waiting for a replica
+    private static final class Task {
+        final long sequence;
+        final String topic;
+        final Message msg;
+        final boolean muted; // Whether the input was delivered muted (its outputs are discarded)
+
+        Task(long sequence, String topic, Message msg, boolean muted) {
+            this.sequence = sequence;
+            this.topic = topic;
+            this.msg = msg;
+            this.muted = muted;
+        }
+    }
+
+    // Get the string representation of the agent
+    @Override
+    public String toString() {
+        return "ReplicatedAgent{agent=" + agent.getName() + ", replicas=" + running.get() + "/" + maxReplicas + "}";
+    }
+}
@@ -0,0 +1,302 @@
+package graph;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hierarchical timing wheel running any number of timers on one thread, with millisecond ticks.
+ * Level 0 has 256 one-millisecond slots, and each of the four levels above it has 64 slots
+ * covering a whole rotation of the level below, which spans about 49 days in total.
+ * A timer sits in the slot of the coarsest level that still tells its deadline apart. When a
+ * level-0 rotation ends, the matching slot of the level above is emptied into the finer levels.
+ * Scheduling and cancelling are O(1): other threads only queue a request, and the wheel thread
+ * links or unlinks the timer in its slot list before the next tick.
+ * Every task runs on the wheel thread, so tasks must not block: a task that publishes or does
+ * real work hands it to another thread, e.g. the hand-off pool (see TimerAgent and DelayAgent),
+ * or every timer is late.
+ */
+public final class TimingWheel {
+    private static final int[] LEVEL_BITS = {8, 6, 6, 6, 6}; // Slots per level, as powers of two
+    private static final long MAX_SPAN = 1L << 32; // Ticks covered by all the levels together
+    private static final long TICK_NANOS = 1_000_000L; // One tick is one millisecond
+    private static final int ACTIVE = 0; // Timer state: scheduled and not done
+    private static final int DONE = 1; // Timer state: a one-shot timer that fired
+    private static final int CANCELLED = 2; // Timer state: cancelled before it was done
+
+    private static volatile TimingWheel shared; // The wheel shared by the timer agents
+    private static final ExecutorService HAND_OFF = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "TimingWheel-handoff");
+        t.setDaemon(true);
+        return t;
+    }); // Runs the work of timer firings; a slow one pins only its own thread
+
+    private final Timer[][] slots; // The head of the timer list of every slot, by level
+    private final int[] shifts; // Bits of the deadline below the slot index of every level
+    private final ConcurrentLinkedQueue<Timer> requests = new ConcurrentLinkedQueue<>(); // Timers to link or unlink
+    private final AtomicInteger activeCount = new AtomicInteger(); // Timers scheduled and not yet done
+    private final AtomicLong firedCount = new AtomicLong(); // Timer firings so far
+    private final LatencyStats lateness = new LatencyStats(); // How long after its deadline each timer fired
+    private final long startNanos = System.nanoTime(); // Time of tick 0
+    private final Thread thread; // The wheel thread
+    private long currentTick = 0; // The last tick handled (wheel thread only)
+    private volatile boolean stopped = false; // Whether the wheel was closed
+
+    // Create a wheel and start its thread.
+    public TimingWheel() {
+        slots = new Timer[LEVEL_BITS.length][];
+        shifts = new int[LEVEL_BITS.length];
+        int shift = 0;
+        for (int level = 0; level < LEVEL_BITS.length; level++) {
+            slots[level] = new Timer[1 << LEVEL_BITS[level]];
+            shifts[level] = shift;
+            shift += LEVEL_BITS[level];
+        }
+        thread = new Thread(this::run, "TimingWheel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Get the pool that timer tasks hand their work to, so the wheel thread never blocks
+    public static Executor handOff() {
+        return HAND_OFF;
+    }
+
+    // Get the wheel shared by the timer agents, starting it on first use
+    public static TimingWheel shared() {
+        TimingWheel wheel = shared;
+        if (wheel == null) {
+            synchronized (TimingWheel.class) {
+                wheel = shared;
+                if (wheel == null) {
+                    wheel = new TimingWheel();
+                    shared = wheel;
+                }
+            }
+        }
+        return wheel;
+    }
+
+    // Run a task once after the given delay, in milliseconds.
+    public Timer schedule(Runnable task, long delayMillis) {
+        return scheduleAtFixedRate(task, delayMillis, 0);
+    }
+
+    // Run a task after the initial delay and then every period, in milliseconds (a period of 0 runs it once).
+    public Timer scheduleAtFixedRate(Runnable task, long initialDelayMillis, long periodMillis) {
+        if (task == null) {
+            throw new IllegalArgumentException("Timer task cannot be null");
+        }
+        if (initialDelayMillis < 0 || periodMillis < 0) {
+            throw new IllegalArgumentException("Timer delay and period cannot be negative: " + initialDelayMillis + ", " + periodMillis);
+        }
+        if (stopped) {
+            throw new IllegalStateException("The timing wheel is closed");
+        }
+        long now = (System.nanoTime() - startNanos) / TICK_NANOS;
+        Timer timer = new Timer(task, now + Math.max(1, initialDelayMillis), periodMillis);
+        activeCount.incrementAndGet();
+        requests.add(timer);
+        return timer;
+    }
+
+    // The loop of the wheel thread: handle every tick up to the current time, then sleep until the next one
+    private void run() {
+        while (!stopped) {
+            long now = (System.nanoTime() - startNanos) / TICK_NANOS;
+            while (currentTick < now && !stopped) {
+                currentTick++;
+                if ((currentTick & (slots[0].length - 1)) == 0) {
+                    cascade(1);
+                }
+                handleRequests(currentTick); // The slot of this tick has not fired yet
+                expire(slots[0], (int) (currentTick & (slots[0].length - 1)));
+            }
+            handleRequests(currentTick + 1);
+            long wake = startNanos + (currentTick + 1) * TICK_NANOS;
+            LockSupport.parkNanos(wake - System.nanoTime());
+        }
+    }
+
+    // Link the newly scheduled timers (none earlier than the given tick) and unlink the cancelled ones
+    private void handleRequests(long earliest) {
+        Timer timer;
+        while ((timer = requests.poll()) != null) {
+            if (timer.state.get() == CANCELLED) {
+                unlink(timer);
+            } else if (timer.level < 0) {
+                link(timer, earliest);
+            }
+        }
+    }
+
+    // Move the timers of the current slot of a level into the finer levels, and cascade the level above when it wraps
+    private void cascade(int level) {
+        if (level >= slots.length) {
+            return;
+        }
+        int index = (int) ((currentTick >>> shifts[level]) & (slots[level].length - 1));
+        if (index == 0) {
+            cascade(level + 1); // The level above must first empty its slot into this one
+        }
+        Timer timer = slots[level][index];
+        slots[level][index] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            timer.level = -1;
+            link(timer, currentTick); // The slot of this tick fires right after the cascade
+            timer = next;
+        }
+    }
+
+    // Fire the timers of a level-0 slot
+    private void expire(Timer[] wheel, int index) {
+        Timer timer = wheel[index];
+        wheel[index] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            timer.level = -1;
+            fire(timer);
+            timer = next;
+        }
+    }
+
+    // Run a timer's task, and put it back on the wheel if it repeats
+    private void fire(Timer timer) {
+        if (timer.state.get() != ACTIVE) {
+            return;
+        }
+        lateness.record(System.nanoTime() - startNanos - timer.deadline * TICK_NANOS);
+        firedCount.incrementAndGet();
+        try {
+            timer.task.run();
+        } catch (Exception e) {
+            // Keep the wheel running even if a task fails
+        }
+        if (timer.period > 0) {
+            timer.deadline += timer.period;
+            if (timer.deadline <= currentTick) { // Missed periods are skipped rather than run in a burst
+                timer.deadline += ((currentTick - timer.deadline) / timer.period + 1) * timer.period;
+            }
+            link(timer, currentTick + 1);
+        } else if (timer.state.compareAndSet(ACTIVE, DONE)) {
+            activeCount.decrementAndGet();
+        }
+    }
+
+    // Put a timer in the slot of the coarsest level that tells its deadline apart (overdue timers fire at the earliest tick)
+    private void link(Timer timer, long earliest) {
+        if (timer.state.get() != ACTIVE) {
+            return;
+        }
+        long deadline = Math.max(timer.deadline, earliest);
+        long delta = Math.min(deadline - currentTick, MAX_SPAN - 1);
+        long placed = currentTick + delta;
+        int level = 0;
+        while (level < slots.length - 1 && delta >= 1L << (shifts[level] + LEVEL_BITS[level])) {
+            level++;
+        }
+        int index = (int) ((placed >>> shifts[level]) & (slots[level].length - 1));
+        timer.deadline = deadline;
+        timer.level = level;
+        timer.index = index;
+        timer.prev = null;
+        timer.next = slots[level][index];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        slots[level][index] = timer;
+    }
+
+    // Take a timer out of its slot list
+    private void unlink(Timer timer) {
+        if (timer.level < 0) {
+            return;
+        }
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            slots[timer.level][timer.index] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.level = -1;
+    }
+
+    // Get the number of timers scheduled and not yet done or cancelled
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    // Get the number of timer firings so far
+    public long getFiredCount() {
+        return firedCount.get();
+    }
+
+    // Get how long after their deadline the timers fired
+    public LatencyStats getLateness() {
+        return lateness;
+    }
+
+    // Stop the wheel thread; the pending timers never fire
+    public void close() {
+        stopped = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * A timer on the wheel, which can be cancelled from any thread.
+     */
+    public final class Timer {
+        private final Runnable task; // The task to run
+        private final long period; // Ticks between runs (0 = run once)
+        private final AtomicInteger state = new AtomicInteger(ACTIVE); // ACTIVE, DONE or CANCELLED
+        private long deadline; // The tick of the next run (wheel thread only, once scheduled)
+        private int level = -1; // The level of the slot holding the timer, or -1 if it is in none
+        private int index; // The slot holding the timer
+        private Timer prev; // The previous timer of the slot
+        private Timer next; // The next timer of the slot
+
+        Timer(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        // Cancel the timer, returns false if it was already done or cancelled
+        public boolean cancel() {
+            if (!state.compareAndSet(ACTIVE, CANCELLED)) {
+                return false;
+            }
+            activeCount.decrementAndGet();
+            requests.add(this); // The wheel thread unlinks it before the next tick
+            return true;
+        }
+
+        // Check if the timer was cancelled
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        // Check if the timer is still scheduled
+        public boolean isActive() {
+            return state.get() == ACTIVE;
+        }
+
+        // Get the period of the timer in milliseconds (0 for a one-shot timer)
+        public long getPeriodMillis() {
+            return period;
+        }
+    }
+}
@@ -2,21 +2,44 @@ package graph;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Represents a topic in the computational graph system.
  * Topics are used to publish and subscribe to messages.
+ * Besides agents, a topic accepts Flow.Subscribers, which pull its messages at their own pace.
  */
-public class Topic {
+public class Topic implements Flow.Publisher<Message> {
     private static final int MAX_SUBSCRIBERS = 1000; // Maximum number of subscribers
     private static final int MAX_PUBLISHERS = 1000; // Maximum number of publishers
+    private static final int DEFAULT_BUFFER = 256; // Messages buffered per Flow.Subscriber by default
+    private static final long BLOCK_TIMEOUT_MILLIS = 100; // How long a BLOCK_WITH_TIMEOUT subscription makes the publisher wait
+    private static final int CONFLATION_BURST = 16; // Most conflated values a publisher delivers before handing the rest to the shared pool
     
     public final String name; // The name of the topic
     private final CopyOnWriteArrayList<Agent> subs = new CopyOnWriteArrayList<>(); // The subscribers of the topic
     private final CopyOnWriteArrayList<Agent> pubs = new CopyOnWriteArrayList<>(); // The publishers of the topic
     
+    private final CopyOnWriteArrayList<TopicSubscription> subscriptions = new CopyOnWriteArrayList<>(); // The Flow.Subscribers of the topic
+    private final ConcurrentHashMap<Agent, ConflationSlot> conflatedSubs = new ConcurrentHashMap<>(); // Subscribers that only receive the latest value
+    
     private volatile Message latestMessage = null; // The latest message published to the topic
+    private volatile boolean conflating = false; // Whether every subscriber only receives the latest value
+    private volatile boolean epochSource = false; // Whether external publishes on this topic start a new epoch
+    private final AtomicBoolean dirty = new AtomicBoolean(); // Whether the latest message is out of date (lazy evaluation)
+    private final Object refreshLock = new Object(); // Makes concurrent readers of a dirty topic wait for one refresh
+    private volatile Runnable refresher = null; // Brings a dirty topic up to date when it is read
+    private volatile boolean suppressUnchanged = false; // Whether publishing the current value again is ignored
+    private final AtomicLong suppressedCount = new AtomicLong(); // Publishes ignored because the value did not change
+    private final AtomicLong conflatedCount = new AtomicLong(); // Messages skipped because a newer value replaced them
+    private volatile int fanOutThreshold = 0; // Subscriber count above which delivery is spread over a pool (0 = never)
+    private volatile FanOutDispatcher fanOut = null; // Delivers to the subscribers in parallel once the threshold is passed
     
     // Constructor
     Topic(String name){
@@ -50,6 +73,60 @@ public class Topic {
         }
     }
     
+    // Subscribe an agent to the topic, optionally receiving only the latest pending value
+    public void subscribe(Agent a, boolean conflate){
+        subscribe(a);
+        if (conflate) {
+            conflatedSubs.computeIfAbsent(a, agent -> new ConflationSlot());
+        }
+    }
+    
+    // Subscribe a Flow.Subscriber, buffering up to 256 messages for it and dropping the oldest when it falls further behind
+    @Override
+    public void subscribe(Flow.Subscriber<? super Message> subscriber) {
+        subscribe(subscriber, DEFAULT_BUFFER, OverflowPolicy.DROP_OLDEST);
+    }
+
+    // Subscribe a Flow.Subscriber with the given buffer capacity and what to do when the buffer is full
+    public TopicSubscription subscribe(Flow.Subscriber<? super Message> subscriber, int capacity, OverflowPolicy policy) {
+        if (subscriber == null) { // Rule 1.9 of the Reactive Streams specification
+            throw new NullPointerException("Subscriber cannot be null");
+        }
+        if (subscriptions.size() >= MAX_SUBSCRIBERS) {
+            throw new IllegalStateException("Maximum subscribers reached: " + MAX_SUBSCRIBERS);
+        }
+        TopicSubscription subscription = new TopicSubscription(this, subscriber, capacity, policy, BLOCK_TIMEOUT_MILLIS);
+        subscription.start(); // onSubscribe returns before any publish can reach the subscription, so onNext never runs alongside it
+        subscriptions.add(subscription);
+        if (subscription.isCancelled()) { // Cancelled from onSubscribe, or while it was being added
+            subscriptions.remove(subscription);
+        }
+        return subscription;
+    }
+
+    // Forget a Flow.Subscriber's subscription (it was cancelled)
+    void removeSubscription(TopicSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    // Complete the subscriptions of the Flow.Subscribers once their buffered messages are delivered (the topic goes away)
+    public void completeSubscriptions() {
+        for (TopicSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        subscriptions.clear();
+    }
+
+    // Get the subscriptions of the Flow.Subscribers of the topic
+    public List<TopicSubscription> getSubscriptions() {
+        return Collections.unmodifiableList(subscriptions);
+    }
+
+    // Check if the topic has Flow.Subscribers
+    public boolean hasSubscriptions() {
+        return !subscriptions.isEmpty();
+    }
+
     // Unsubscribe an agent from the topic
     public void unsubscribe(Agent a){
         if (a == null) { // If the agent is null
@@ -57,6 +134,11 @@ public class Topic {
         }
         
         try {
+            conflatedSubs.remove(a); // Forget any pending conflated value
+            FanOutDispatcher dispatcher = fanOut;
+            if (dispatcher != null) {
+                dispatcher.remove(a); // Forget any pending fanned-out value
+            }
             subs.remove(a); // Remove the agent from the subscribers list
         } catch (Exception e) {
             throw new RuntimeException("Error unsubscribing agent from topic: " + name, e);
@@ -68,13 +150,40 @@ public class Topic {
         if (m == null) { // If the message is null
             throw new IllegalArgumentException("Message cannot be null");
         }
+        if (Epoch.isMuted()) { // Published by an agent whose output is being discarded
+            return;
+        }
+        if (Epoch.capture(name, m)) { // Published by an agent whose output is held back, it is published again later
+            return;
+        }
+        if (suppressUnchanged && m.epoch == null && m.hasSameValue(latestMessage)) { // Subscribers already have this value
+            suppressedCount.incrementAndGet();
+            return;
+        }
+        if (m.epoch == null && epochSource) { // An external publish starts a new epoch
+            m = new Message(m, Epoch.next(name));
+        }
         
+        Epoch previous = Epoch.enter(m.epoch); // Derived messages inherit the epoch
         try {
             this.latestMessage = m; // Update latest message
+            this.dirty.set(false); // The topic is up to date again
             
             // Notify all subscribers
+            int threshold = fanOutThreshold;
+            boolean spread = threshold > 0 && subs.size() > threshold; // Too many subscribers to serve one by one
+            FanOutDispatcher dispatcher = spread ? fanOutDispatcher() : fanOut;
             for (Agent a : subs) { // For each subscriber
                 if (a != null) {
+                    ConflationSlot slot = conflating ? conflatedSubs.computeIfAbsent(a, agent -> new ConflationSlot()) : conflatedSubs.get(a);
+                    if (slot != null) { // The subscriber skips to the newest value if it falls behind
+                        slot.deliver(a, m);
+                        continue;
+                    }
+                    if (dispatcher != null && (spread || dispatcher.hasPending(a))) { // Hand it to the subscriber's lane, also while the lane drains so it is not overtaken
+                        dispatcher.dispatch(a, m);
+                        continue;
+                    }
                     try {
                         a.callback(this.name, m); // Call the agent's callback method
                     } catch (Exception e) {
@@ -82,8 +191,13 @@ public class Topic {
                     }
                 }
             }
+            for (TopicSubscription subscription : subscriptions) { // Buffered until each Flow.Subscriber asks for it
+                subscription.offer(m);
+            }
         } catch (Exception e) { // If there is an error publishing the message
             throw new RuntimeException("Error publishing message to topic: " + name, e);
+        } finally {
+            Epoch.exit(previous);
         }
     }
 
@@ -121,13 +235,112 @@ public class Topic {
         }
     }
 
+    // Set whether every subscriber only receives the latest pending value
+    public void setConflating(boolean conflating) {
+        this.conflating = conflating;
+    }
+    
+    // Set the subscriber count above which messages are delivered in parallel on a pool (0 = always on the publisher's thread)
+    public void setFanOutThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Fan-out threshold cannot be negative: " + threshold);
+        }
+        this.fanOutThreshold = threshold;
+    }
+    
+    // Get the fan-out dispatcher, creating it on first use
+    private FanOutDispatcher fanOutDispatcher() {
+        FanOutDispatcher dispatcher = fanOut;
+        if (dispatcher == null) {
+            synchronized (this) {
+                dispatcher = fanOut;
+                if (dispatcher == null) {
+                    dispatcher = new FanOutDispatcher(name);
+                    fanOut = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+    
+    // Set whether publishing the current value again is ignored
+    public void setSuppressUnchanged(boolean suppressUnchanged) {
+        this.suppressUnchanged = suppressUnchanged;
+    }
+    
+    // Set whether external publishes on this topic start a new epoch
+    public void setEpochSource(boolean epochSource) {
+        this.epochSource = epochSource;
+    }
+    
     // Getters:
+    
+    // Check if every subscriber only receives the latest pending value
+    public boolean isConflating() {
+        return conflating;
+    }
+    
+    // Check if publishing the current value again is ignored
+    public boolean isSuppressUnchanged() {
+        return suppressUnchanged;
+    }
+    
+    // Get the number of publishes ignored because the value did not change
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+    
+    // Check if external publishes on this topic start a new epoch
+    public boolean isEpochSource() {
+        return epochSource;
+    }
+    
+    // Get the subscriber count above which messages are delivered in parallel (0 = never)
+    public int getFanOutThreshold() {
+        return fanOutThreshold;
+    }
+    
+    // Get the fan-out dispatcher of the topic, or null if the threshold was never passed
+    public FanOutDispatcher getFanOutDispatcher() {
+        return fanOut;
+    }
+    
+    // Get the number of messages skipped because a newer value replaced them before delivery
+    public long getConflatedCount() {
+        return conflatedCount.get();
+    }
 
-    // Get the latest message published to the topic
+    // Get the latest message published to the topic (refreshing it first if it is dirty)
     public Message getLatestMessage() {
+        Runnable r = refresher;
+        if (r != null && dirty.get()) {
+            synchronized (refreshLock) { // A concurrent reader waits for the refresh instead of reading the stale value
+                if (dirty.compareAndSet(true, false)) { // Cleared first, so an invalidation during the refresh is not lost
+                    r.run();
+                }
+            }
+        }
         return latestMessage;
     }
     
+    // Mark the latest message as out of date, returns false if the topic was already dirty
+    public boolean invalidate() {
+        return dirty.compareAndSet(false, true);
+    }
+    
+    // Check if the latest message is out of date
+    public boolean isDirty() {
+        return dirty.get();
+    }
+    
+    // Set what brings the topic up to date when it is read while dirty (null to remove)
+    public void setRefresher(Runnable refresher) {
+        this.refresher = refresher;
+        if (refresher == null) {
+            this.dirty.set(false);
+        }
+    }
+    
     // Get the subscribers of the topic
     public List<Agent> getSubscribers() {
         return Collections.unmodifiableList(subs);
@@ -181,4 +394,47 @@ public class Topic {
     public String toString() {
         return "Topic{name='" + name + "', subscribers=" + subs.size() + ", publishers=" + pubs.size() + "}";
     }
-}
\ No newline at end of file
+    
+    // Holds the latest undelivered message of one subscriber.
+    // Only one thread delivers at a time; values published meanwhile replace each other.
+    private final class ConflationSlot {
+        private final AtomicReference<Message> latest = new AtomicReference<>(); // The newest undelivered message
+        private final AtomicInteger wip = new AtomicInteger(); // Number of deliveries requested while delivering
+        
+        // Deliver a message, or leave it for the thread that is already delivering
+        void deliver(Agent a, Message m) {
+            if (latest.getAndSet(m) != null) { // An undelivered value was replaced
+                conflatedCount.incrementAndGet();
+            }
+            if (wip.getAndIncrement() != 0) { // Another thread is delivering and will pick up this value
+                return;
+            }
+            drain(a);
+        }
+
+        // Deliver the latest values for up to a burst, then hand the rest to the pool so the caller can return
+        private void drain(Agent a) {
+            int missed = wip.get();
+            int burst = 0;
+            while (true) {
+                Message next = latest.getAndSet(null);
+                if (next != null) {
+                    try {
+                        Epoch.deliver(a, name, next); // Call the agent's callback method
+                    } catch (Exception e) {
+                        // Continue delivering even if one callback fails
+                    }
+                    burst++;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+                if (burst >= CONFLATION_BURST) { // wip stays above 0, so no publisher starts a second drain
+                    MailboxAgent.sharedPool().execute(() -> drain(a));
+                    return;
+                }
+            }
+        }
+    }
+}
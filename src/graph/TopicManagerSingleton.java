@@ -10,6 +10,11 @@ import java.util.concurrent.ConcurrentHashMap;
 public class TopicManagerSingleton {
     private static final int MAX_TOPIC_NAME_LENGTH = 100;
     private static final int MAX_TOPICS = 1000;
+    public static final String SHADOW_PREFIX = "__"; // Prefix of the topics of shadow agents (warm-up, replicas), hidden from the views
+
+    // Only the static accessor is used, the class is never instantiated
+    private TopicManagerSingleton() {
+    }
     
    
     // TopicManager is a singleton class that manages the lifecycle and lookup of Topic objects.
@@ -55,6 +60,9 @@ public class TopicManagerSingleton {
       
         // Remove all topics from the manager.
         public void clear() {
+            for (Topic topic : map.values()) {
+                topic.completeSubscriptions(); // Tell the Flow.Subscribers no more messages will come
+            }
             map.clear();
         }
        
@@ -78,10 +86,18 @@ public class TopicManagerSingleton {
                 return; // return if the topic name is null or empty
             }
             name = name.toUpperCase();
-            map.remove(name);
+            Topic topic = map.remove(name);
+            if (topic != null) {
+                topic.completeSubscriptions(); // Tell the Flow.Subscribers no more messages will come
+            }
         }
     }
     
+    // Check if a topic only serves shadow agents, which the views do not show
+    public static boolean isShadow(String name) {
+        return name != null && name.startsWith(SHADOW_PREFIX);
+    }
+
     // Get the singleton TopicManager instance
     public static TopicManager get(){ 
         return TopicManager.instance; // return the singleton TopicManager instance
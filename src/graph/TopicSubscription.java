@@ -0,0 +1,261 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The subscription of a Flow.Subscriber to a topic.
+ * Published messages go into a bounded buffer, and are handed to the subscriber on the pool
+ * shared with the mailbox agents only as far as it requested them, so a slow consumer pulls at
+ * its own pace. When the buffer is full the overflow policy decides: wait for room (the publisher
+ * feels the backpressure), drop the new or the oldest message, or keep only the latest one. Every
+ * dropped message is counted. Calls to the subscriber are serialized and in publish order.
+ */
+public class TopicSubscription implements Flow.Subscription {
+    private static final int BURST_SIZE = 64; // Maximum messages delivered before yielding the pool thread
+
+    private final Topic topic; // The topic subscribed to
+    private final Flow.Subscriber<? super Message> subscriber; // The subscriber
+    private final int capacity; // Most messages buffered for the subscriber
+    private final OverflowPolicy policy; // What to do with a message when the buffer is full
+    private final long blockTimeoutMillis; // How long BLOCK_WITH_TIMEOUT waits for room
+    private final ArrayDeque<Message> buffer = new ArrayDeque<>(); // Messages not yet delivered (guarded by this)
+    private final AtomicLong demand = new AtomicLong(); // Messages requested and not yet delivered
+    private final AtomicInteger wip = new AtomicInteger(); // Drain requests; the one that moves it from 0 runs the drain
+    private final LongAdder deliveredCount = new LongAdder(); // Messages handed to the subscriber
+    private final LongAdder overflowCount = new LongAdder(); // Messages dropped because the buffer was full
+    private volatile boolean cancelled = false; // Whether the subscription ended (cancelled, failed or completed)
+    private volatile boolean completing = false; // Whether the topic went away; onComplete follows the buffered messages
+    private volatile Throwable error; // A protocol violation to report to the subscriber, or null
+
+    // Create a subscription (see Topic.subscribe)
+    TopicSubscription(Topic topic, Flow.Subscriber<? super Message> subscriber, int capacity,
+                      OverflowPolicy policy, long blockTimeoutMillis) {
+        if (subscriber == null) {
+            throw new IllegalArgumentException("Subscriber cannot be null");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be at least 1, got: " + capacity);
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Overflow policy cannot be null");
+        }
+        if (blockTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Block timeout cannot be negative: " + blockTimeoutMillis);
+        }
+        this.topic = topic;
+        this.subscriber = subscriber;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    // Buffer a published message for the subscriber (called on the publisher's thread)
+    void offer(Message m) {
+        synchronized (this) {
+            if (cancelled || completing) {
+                return;
+            }
+            if (buffer.size() >= capacity) {
+                switch (policy) {
+                    case BLOCK:
+                    case BLOCK_WITH_TIMEOUT:
+                        if (!awaitRoom()) {
+                            overflowCount.increment();
+                            return;
+                        }
+                        if (cancelled || completing) {
+                            return;
+                        }
+                        break;
+                    case DROP_NEWEST:
+                        overflowCount.increment();
+                        return;
+                    case DROP_OLDEST:
+                        buffer.poll();
+                        overflowCount.increment();
+                        break;
+                    case CONFLATE:
+                        overflowCount.add(buffer.size());
+                        buffer.clear();
+                        break;
+                }
+            }
+            buffer.add(m);
+        }
+        drain();
+    }
+
+    // Wait until the buffer has room or the subscription ends, returns false if the timeout passed first (guarded by this)
+    private boolean awaitRoom() {
+        long deadline = System.nanoTime() + blockTimeoutMillis * 1_000_000L;
+        try {
+            while (buffer.size() >= capacity && !cancelled && !completing) {
+                if (policy == OverflowPolicy.BLOCK) {
+                    wait();
+                } else {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        return false;
+                    }
+                    wait(left / 1_000_000L, (int) (left % 1_000_000L));
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Ask for up to n more messages
+    @Override
+    public void request(long n) {
+        if (n <= 0) { // Rule 3.9 of the Reactive Streams specification
+            error = new IllegalArgumentException("Requested demand must be positive, got: " + n);
+        } else {
+            demand.accumulateAndGet(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more); // Capped, an unbounded demand stays unbounded
+        }
+        drain();
+    }
+
+    // Stop receiving messages; the buffered ones are dropped
+    @Override
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        topic.removeSubscription(this);
+        synchronized (this) {
+            buffer.clear();
+            notifyAll(); // Release a publisher waiting for room
+        }
+    }
+
+    // End the subscription once the buffered messages are delivered (the topic went away)
+    void complete() {
+        synchronized (this) {
+            completing = true;
+            notifyAll();
+        }
+        drain();
+    }
+
+    // Run the delivery loop on the shared pool, unless it is already running
+    private void drain() {
+        if (wip.getAndIncrement() == 0) {
+            MailboxAgent.sharedPool().execute(this::deliver);
+        }
+    }
+
+    // Hand buffered messages to the subscriber as far as it requested them, then signal the end if it came
+    private void deliver() {
+        int missed = wip.get();
+        int burst = 0;
+        while (true) {
+            while (!cancelled && burst < BURST_SIZE) {
+                Throwable failure = error;
+                if (failure != null) {
+                    cancel();
+                    signal(() -> subscriber.onError(failure));
+                    return;
+                }
+                Message m = null;
+                boolean done;
+                synchronized (this) {
+                    if (demand.get() > 0) {
+                        m = buffer.poll();
+                        if (m != null) {
+                            notifyAll(); // There is room again
+                        }
+                    }
+                    done = completing && buffer.isEmpty();
+                }
+                if (m == null) {
+                    if (done) {
+                        cancelled = true;
+                        signal(subscriber::onComplete);
+                        return;
+                    }
+                    break;
+                }
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                deliveredCount.increment();
+                burst++;
+                Message next = m;
+                if (!signal(() -> subscriber.onNext(next))) { // A failing subscriber is cancelled (rule 2.13)
+                    cancel();
+                    return;
+                }
+            }
+            if (burst >= BURST_SIZE && !cancelled) { // Let other subscriptions use the thread, and continue later
+                MailboxAgent.sharedPool().execute(this::deliver);
+                return;
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    // Call the subscriber, returns false if it threw
+    private static boolean signal(Runnable call) {
+        try {
+            call.run();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // Tell the subscriber it is subscribed (called once, by Topic.subscribe before any message is offered)
+    void start() {
+        if (!signal(() -> subscriber.onSubscribe(this))) {
+            cancel();
+        }
+    }
+
+    // Get the subscriber
+    public Flow.Subscriber<? super Message> getSubscriber() {
+        return subscriber;
+    }
+
+    // Get the number of messages requested and not yet delivered
+    public long getDemand() {
+        return demand.get();
+    }
+
+    // Get the number of messages buffered for the subscriber
+    public synchronized int getBufferedCount() {
+        return buffer.size();
+    }
+
+    // Get the number of messages handed to the subscriber
+    public long getDeliveredCount() {
+        return deliveredCount.sum();
+    }
+
+    // Get the number of messages dropped because the buffer was full
+    public long getOverflowCount() {
+        return overflowCount.sum();
+    }
+
+    // Check if the subscription ended
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Get the string representation of the subscription
+    @Override
+    public String toString() {
+        return "TopicSubscription{topic=" + topic.name + ", policy=" + policy + ", capacity=" + capacity
+            + ", delivered=" + deliveredCount.sum() + ", overflow=" + overflowCount.sum() + "}";
+    }
+}
@@ -6,4 +6,10 @@
  */
 module project {
     requires java.logging;
+    requires java.management;
+    requires jdk.management;
+
+    // The headless engine API and the types of its signatures; configs, server, servlets and views stay internal
+    exports engine;
+    exports graph;
 }
\ No newline at end of file
@@ -6,11 +6,19 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+import configs.CompiledGraph;
+import configs.ExecutionMode;
 import configs.GenericConfig;
 import configs.Graph;
+import graph.CircuitBreakerAgent;
+import graph.OverflowPolicy;
+import graph.PriorityClass;
 import graph.TopicManagerSingleton;
 import server.RequestParser.RequestInfo;
 import views.HtmlGraphWriter;
@@ -27,6 +35,10 @@ public class ConfLoader implements Servlet {
     private static final int MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
     private static final String[] ALLOWED_EXTENSIONS = {".conf", ".txt", ".cfg"}; // Allowed file extensions
     private static final String UPLOAD_DIR = "config_files"; // Upload directory
+    private static final String MODE_PROPERTY = "graph.executionMode"; // System property with the server-wide default execution mode
+    
+    private volatile GenericConfig activeConfig; // The configuration currently loaded
+    private volatile CompiledGraph compiledGraph; // The stateless function of the active configuration, or null if it cannot be compiled
     
     // Handle the request
     @Override
@@ -46,6 +58,12 @@ public class ConfLoader implements Servlet {
             return;
         }
         
+        // Serve GET /agent-states for the circuit breaker states of the agents
+        if ("GET".equals(ri.getHttpCommand()) && "/agent-states".equals(ri.getUri())) {
+            handleAgentStatesRequest(toClient);
+            return;
+        }
+        
         try { // Try to handle the request
             // Validate request method
             if (!"POST".equals(ri.getHttpCommand())) {
@@ -102,8 +120,118 @@ public class ConfLoader implements Servlet {
                 return;
             }
             
+            // Apply the optional settings to a new configuration as they are parsed
+            GenericConfig config = new GenericConfig();
+            
+            // Validate the optional execution mode
+            String modeParam = params.getOrDefault("mode", System.getProperty(MODE_PROPERTY));
+            try {
+                config.setExecutionMode(modeParam != null && !modeParam.trim().isEmpty()
+                    ? ExecutionMode.fromString(modeParam) : ExecutionMode.PARALLEL);
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(toClient, 400, "Bad Request", escapeHtml(e.getMessage()));
+                return;
+            }
+            
+            // Validate the optional queue capacity and overflow policy
+            try {
+                int capacity = 1;
+                OverflowPolicy overflow = OverflowPolicy.BLOCK;
+                String capacityParam = params.get("capacity");
+                if (capacityParam != null && !capacityParam.trim().isEmpty()) {
+                    capacity = Integer.parseInt(capacityParam.trim());
+                }
+                String overflowParam = params.get("overflow");
+                if (overflowParam != null && !overflowParam.trim().isEmpty()) {
+                    overflow = OverflowPolicy.fromString(overflowParam);
+                }
+                config.setQueuePolicy(capacity, overflow); // Set the agent queue capacity and overflow policy
+            } catch (IllegalArgumentException e) { // Also covers NumberFormatException
+                sendErrorResponse(toClient, 400, "Bad Request", escapeHtml("Invalid queue settings: " + e.getMessage()));
+                return;
+            }
+            
+            // Optional comma-separated list of conflated topics
+            config.setConflatedTopics(parseList(params.get("conflate")));
+            
+            // Optional glitch-free evaluation (multi-input agents fire once per epoch)
+            config.setGlitchFree(Boolean.parseBoolean(params.get("glitchFree")));
+            
+            // Optional change suppression (unchanged values are not propagated)
+            config.setSuppressUnchanged(Boolean.parseBoolean(params.get("suppressUnchanged")));
+            
+            // Optional subscriber count above which topics deliver in parallel
+            String fanOutParam = params.get("fanOut");
+            if (fanOutParam != null && !fanOutParam.trim().isEmpty()) {
+                try {
+                    config.setFanOutThreshold(Integer.parseInt(fanOutParam.trim()));
+                } catch (IllegalArgumentException e) { // Also covers NumberFormatException
+                    sendErrorResponse(toClient, 400, "Bad Request", escapeHtml("Invalid fan-out threshold: " + fanOutParam));
+                    return;
+                }
+            }
+            
+            // Optional callback deadline of the agents in milliseconds; agents that keep missing it are quarantined
+            String deadlineParam = params.get("deadline");
+            if (deadlineParam != null && !deadlineParam.trim().isEmpty()) {
+                try {
+                    config.setDeadline(Long.parseLong(deadlineParam.trim()));
+                } catch (IllegalArgumentException e) { // Also covers NumberFormatException
+                    sendErrorResponse(toClient, 400, "Bad Request", escapeHtml("Invalid deadline: " + deadlineParam));
+                    return;
+                }
+            }
+            
+            // Optional JIT warm-up through a shadow copy of the graph, for a number of passes and/or milliseconds
+            try {
+                long warmUp = 0;
+                long warmUpMillis = 0;
+                String warmUpParam = params.get("warmUp");
+                if (warmUpParam != null && !warmUpParam.trim().isEmpty()) {
+                    warmUp = Long.parseLong(warmUpParam.trim());
+                }
+                String warmUpMillisParam = params.get("warmUpMillis");
+                if (warmUpMillisParam != null && !warmUpMillisParam.trim().isEmpty()) {
+                    warmUpMillis = Long.parseLong(warmUpMillisParam.trim());
+                }
+                config.setWarmUp(warmUp, warmUpMillis);
+            } catch (IllegalArgumentException e) { // Also covers NumberFormatException
+                sendErrorResponse(toClient, 400, "Bad Request", escapeHtml("Invalid warm-up: " + e.getMessage()));
+                return;
+            }
+            
+            // Optional comma-separated list of high-priority topics and agents (PRIORITY mode); a name can be a topic or an agent
+            for (String name : parseList(params.get("highPriority"))) {
+                config.setTopicPriority(name, PriorityClass.HIGH);
+                config.setAgentPriority(name, PriorityClass.HIGH);
+            }
+            
+            // Optional comma-separated list of stateless agents, run as replicas
+            config.setStatelessAgents(parseList(params.get("stateless")));
+            
+            // Optional comma-separated list of pure agents, whose outputs are cached
+            config.setPureAgents(parseList(params.get("pure")));
+            
+            // Optional graph optimization, with the topics read from outside and the constant topics (NAME=value pairs)
+            config.setOptimize(Boolean.parseBoolean(params.get("optimize")));
+            config.setObservedTopics(parseList(params.get("observe")));
+            Map<String, Double> constants = new HashMap<>();
+            for (String pair : parseList(params.get("constants"))) {
+                String[] parts = pair.split("\\s*=\\s*", -1);
+                try {
+                    if (parts.length != 2 || parts[0].trim().isEmpty()) { // Exactly one name and one value
+                        throw new IllegalArgumentException("Expected NAME=value");
+                    }
+                    constants.put(parts[0].trim(), Double.parseDouble(parts[1]));
+                } catch (RuntimeException e) { // A missing name or value, or a value that is not a number
+                    sendErrorResponse(toClient, 400, "Bad Request", escapeHtml("Invalid constant: " + pair));
+                    return;
+                }
+            }
+            config.setConstantTopics(constants);
+            
             // Process the file upload
-            processFileUpload(filename, fileContent, toClient);
+            processFileUpload(filename, fileContent, config, toClient);
             
         } catch (Exception e) {
             sendErrorResponse(toClient, 500, "Internal Server Error", "Unexpected server error");
@@ -124,10 +252,42 @@ public class ConfLoader implements Servlet {
         }
     }
     
-    // Process the file upload
-    private void processFileUpload(String filename, byte[] fileContent, OutputStream toClient) throws IOException {
+    // Handle the agent states request: the breaker state and failure counts of every agent that runs with a deadline, as JSON
+    private void handleAgentStatesRequest(OutputStream toClient) throws IOException {
+        StringBuilder sb = new StringBuilder("{");
+        GenericConfig config = activeConfig;
+        if (config != null) {
+            boolean first = true;
+            for (CircuitBreakerAgent breaker : config.getCircuitBreakers()) {
+                if (!first) {
+                    sb.append(",");
+                }
+                sb.append("\"").append(breaker.getName().replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append("\":{\"state\":\"").append(breaker.getState())
+                    .append("\",\"timeouts\":").append(breaker.getTimeoutCount())
+                    .append(",\"errors\":").append(breaker.getErrorCount())
+                    .append(",\"conflated\":").append(breaker.getConflatedCount())
+                    .append(",\"trips\":").append(breaker.getTripCount())
+                    .append("}");
+                first = false;
+            }
+        }
+        sb.append("}");
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        String header = "HTTP/1.1 200 OK\r\n" +
+            "Content-Type: application/json\r\n" +
+            "Content-Length: " + body.length + "\r\n" +
+            "\r\n";
+        toClient.write(header.getBytes(StandardCharsets.UTF_8));
+        toClient.write(body);
+        toClient.flush();
+    }
+    
+    // Process the file upload with a configuration whose settings are already applied
+    private void processFileUpload(String filename, byte[] fileContent, GenericConfig config, OutputStream toClient) throws IOException {
         try {
-            // Reset the topic map
+            // Stop the agents of the previous configuration and reset the topic map
+            closeActiveConfig();
             TopicManagerSingleton.get().clear();
             // Create upload directory
             Path uploadDir = Paths.get(UPLOAD_DIR); // Create the upload directory
@@ -156,11 +316,11 @@ public class ConfLoader implements Servlet {
             }
             
             // Load configuration
-            GenericConfig config = new GenericConfig(); // Create a new generic config
-            
             try { // Try to load the configuration
                 config.setConfFile(filePath.toString()); // Set the configuration file
+                activeConfig = config; // Track the configuration so its agents can be stopped later
                 config.create(); // Create the configuration
+                compiledGraph = compileOrNull(config); // Share the stateless function with the evaluate requests
             } catch (Exception e) {
                 // Do NOT escape HTML here, so <br> is rendered as line breaks
                 sendErrorResponse(toClient, 400, "Invalid Configuration", "<div id='configError'>Configuration error: " + e.getMessage() + "</div>");
@@ -194,6 +354,19 @@ public class ConfLoader implements Servlet {
         }
     }
     
+    // Split an optional comma-separated parameter into its non-empty items
+    private static List<String> parseList(String param) {
+        List<String> items = new ArrayList<>();
+        if (param != null) {
+            for (String item : param.split(",")) {
+                if (!item.trim().isEmpty()) {
+                    items.add(item.trim());
+                }
+            }
+        }
+        return items;
+    }
+    
     // Check if the file extension is valid
     private boolean isValidFileExtension(String filename) {
         if (filename == null || filename.isEmpty()) {
@@ -265,9 +438,32 @@ public class ConfLoader implements Servlet {
         }
     }
 
+    // Compile a configuration into a stateless function, or return null if it has agents that cannot be compiled
+    private static CompiledGraph compileOrNull(GenericConfig config) {
+        try {
+            return config.compileGraph();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Get the stateless function of the active configuration, or null if there is none
+    public CompiledGraph getCompiledGraph() {
+        return compiledGraph;
+    }
+
+    // Close the agents of the active configuration
+    private synchronized void closeActiveConfig() {
+        compiledGraph = null;
+        if (activeConfig != null) {
+            activeConfig.close();
+            activeConfig = null;
+        }
+    }
+
     // Close the servlet
     @Override
     public void close() throws IOException {
-        // Nothing to close
+        closeActiveConfig();
     }
 } 
\ No newline at end of file
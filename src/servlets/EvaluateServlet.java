@@ -0,0 +1,98 @@
+package servlets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import configs.CompiledGraph;
+import configs.EvaluationContext;
+import server.RequestParser.RequestInfo;
+
+/*
+ * EvaluateServlet is a servlet that evaluates the loaded graph for the values of one request.
+ * Every request gets its own evaluation context, so requests never see each other's values
+ * and run in parallel without touching the shared topics or agents.
+ * Usage: GET /evaluate?A=2&B=3 returns the value of every topic as JSON.
+ */
+public class EvaluateServlet implements Servlet {
+    private final ConfLoader confLoader; // The servlet holding the loaded configuration
+
+    // Constructor
+    public EvaluateServlet(ConfLoader confLoader) {
+        if (confLoader == null) {
+            throw new IllegalArgumentException("ConfLoader cannot be null");
+        }
+        this.confLoader = confLoader;
+    }
+
+    // Handle the request
+    @Override
+    public void handle(RequestInfo ri, OutputStream toClient) throws IOException {
+        if (toClient == null) {
+            throw new IllegalArgumentException("OutputStream cannot be null");
+        }
+        if (ri == null) {
+            sendJson(toClient, 400, "Bad Request", error("Invalid request"));
+            return;
+        }
+
+        CompiledGraph graph = confLoader.getCompiledGraph();
+        if (graph == null) {
+            sendJson(toClient, 409, "Conflict", error("No configuration that can be evaluated statelessly is loaded"));
+            return;
+        }
+
+        EvaluationContext context = graph.newContext(); // This request's own topic values
+        for (Map.Entry<String, String> param : ri.getParameters().entrySet()) {
+            int slot = graph.slotOf(param.getKey());
+            if (slot < 0 || !graph.isSource(slot)) {
+                sendJson(toClient, 400, "Bad Request", error("Not an input topic: " + param.getKey()));
+                return;
+            }
+            double value;
+            try {
+                value = Double.parseDouble(param.getValue().trim());
+            } catch (NumberFormatException e) {
+                sendJson(toClient, 400, "Bad Request", error("Not a number: " + param.getValue()));
+                return;
+            }
+            context.set(param.getKey(), value);
+        }
+        context.evaluate();
+
+        StringBuilder sb = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, Double> entry : context.getValues().entrySet()) {
+            if (!first) sb.append(",");
+            double value = entry.getValue();
+            sb.append("\"").append(entry.getKey()).append("\":").append(Double.isFinite(value) ? Double.toString(value) : "null");
+            first = false;
+        }
+        sb.append("}");
+        sendJson(toClient, 200, "OK", sb.toString());
+    }
+
+    // Build a JSON error body
+    private static String error(String message) {
+        return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    // Send a JSON response
+    private void sendJson(OutputStream toClient, int statusCode, String statusText, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        String header = "HTTP/1.1 " + statusCode + " " + statusText + "\r\n" +
+            "Content-Type: application/json\r\n" +
+            "Content-Length: " + body.length + "\r\n" +
+            "\r\n";
+        toClient.write(header.getBytes(StandardCharsets.UTF_8));
+        toClient.write(body);
+        toClient.flush();
+    }
+
+    // Close the servlet
+    @Override
+    public void close() throws IOException {
+        // Nothing to close
+    }
+}
@@ -35,6 +35,9 @@ public class TopicDisplayer implements Servlet {
             StringBuilder sb = new StringBuilder("{");
             boolean first = true;
             for (Topic t : tm.getTopics()) {
+                if (TopicManagerSingleton.isShadow(t.name)) {
+                    continue;
+                }
                 String value = t.getLatestMessage() != null ? t.getLatestMessage().asText : "0";
                 if (!first) sb.append(",");
                 sb.append("\"").append(t.name).append("\":");
@@ -77,11 +80,23 @@ public class TopicDisplayer implements Servlet {
                 return;
             }
             
+            // Optional key of the entity the value belongs to
+            long key = Message.NO_KEY;
+            String keyParam = params.get("key");
+            if (keyParam != null && !keyParam.trim().isEmpty()) {
+                try {
+                    key = Long.parseLong(keyParam.trim());
+                } catch (NumberFormatException e) {
+                    sendErrorResponse(toClient, 400, "Bad Request", "Invalid key: " + escapeHtml(keyParam));
+                    return;
+                }
+            }
+            
             // Publish the value to the topic
             try {
                 
                 Topic topic = tm.getTopic(topicName);
-                Message msg = new Message(value);
+                Message msg = new Message(value, key);
                 topic.publish(msg);
                 
                 // Show the updated topics table
@@ -110,8 +125,8 @@ public class TopicDisplayer implements Servlet {
             int topicCount = 0;
             
             for (Topic t : tm.getTopics()) {
-                // Skip if the topic is null
-                if (t == null) {
+                // Skip if the topic is null or only serves shadow agents
+                if (t == null || TopicManagerSingleton.isShadow(t.name)) {
                     continue;
                 }
                 // Skip if the topic count is greater than the maximum number of topics to display
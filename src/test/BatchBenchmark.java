@@ -0,0 +1,66 @@
+package test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import configs.BatchEvaluator;
+import configs.GenericConfig;
+import graph.TopicManagerSingleton;
+
+/**
+ * Measures the agent evaluations per second of the batch evaluator on one core.
+ * Loads a configuration, fills every source column with random values, and evaluates
+ * the whole batch repeatedly after a warm-up phase.
+ * Usage: java -cp bin test.BatchBenchmark [configFile] [rows] (default: config_files/mul.conf 10000000)
+ */
+public class BatchBenchmark {
+    private static final int WARMUP_ROUNDS = 5; // Rounds run before measuring, to let the JIT compile the kernels
+    private static final int MEASURED_ROUNDS = 10; // Rounds measured
+
+    private static volatile double sink; // Keeps the JIT from removing the measured work
+
+    public static void main(String[] args) throws Exception {
+        String configFile = args.length > 0 ? args[0] : "config_files/mul.conf";
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+        TopicManagerSingleton.get().clear();
+        GenericConfig config = GenericConfig.load(configFile);
+        BatchEvaluator evaluator = config.createBatchEvaluator();
+        config.close();
+
+        Map<String, double[]> sources = new HashMap<>();
+        Random random = new Random(42);
+        for (String topic : evaluator.getSourceTopics()) {
+            double[] column = new double[rows];
+            for (int i = 0; i < rows; i++) {
+                column[i] = random.nextDouble() * 100;
+            }
+            sources.put(topic, column);
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(evaluator, sources);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            run(evaluator, sources);
+        }
+        long nanos = System.nanoTime() - start;
+
+        double evaluations = (double) evaluator.getAgentCount() * rows * MEASURED_ROUNDS;
+        System.out.printf("%s: %d agents x %d rows%n", configFile, evaluator.getAgentCount(), rows);
+        System.out.printf("%.1f M agent-evaluations/s (%.2f ns per row)%n",
+            evaluations / (nanos / 1e3), (double) nanos / ((double) rows * MEASURED_ROUNDS));
+        System.exit(0);
+    }
+
+    // Evaluate the batch once and keep one value of the result
+    private static void run(BatchEvaluator evaluator, Map<String, double[]> sources) {
+        Map<String, double[]> result = evaluator.evaluate(sources);
+        List<String> derived = evaluator.getDerivedTopics();
+        double[] last = result.get(derived.get(derived.size() - 1));
+        sink = last.length > 0 ? last[last.length - 1] : 0;
+    }
+}
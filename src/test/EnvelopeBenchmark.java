@@ -0,0 +1,84 @@
+package test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import graph.Agent;
+import graph.Envelope;
+import graph.Message;
+import graph.ParallelAgent;
+
+/**
+ * Compares the per-hop cost of the old "topic,text" re-encoding in ParallelAgent
+ * against carrying the original message in an Envelope.
+ * Reports the allocated bytes per hop and the hop throughput, after a warm-up phase.
+ * Usage: java -cp bin test.EnvelopeBenchmark [hops] (default: 5000000)
+ */
+public class EnvelopeBenchmark {
+    private static final int WARMUP_ROUNDS = 3; // Rounds run before measuring, to let the JIT compile the hot paths
+    private static final int PIPELINE_MESSAGES = 1_000_000; // Messages sent through a real ParallelAgent
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile Object sink; // Keeps the JIT from removing the measured work
+
+    public static void main(String[] args) throws Exception {
+        int hops = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Message msg = new Message(42.5);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            measure("warm-up", hops / 10, () -> sink = reencode("TOPIC", msg), false);
+            measure("warm-up", hops / 10, () -> sink = new Envelope("TOPIC", msg), false);
+        }
+
+        System.out.printf("%-12s %14s %12s%n", "hop", "bytes/hop", "Mhops/s");
+        measure("re-encode", hops, () -> sink = reencode("TOPIC", msg), true);
+        measure("envelope", hops, () -> sink = new Envelope("TOPIC", msg), true);
+
+        pipeline();
+        System.exit(0);
+    }
+
+    // The hop as ParallelAgent used to do it: join, encode, then split and decode again
+    private static Message reencode(String topic, Message msg) {
+        Message combined = new Message(topic + "," + msg.asText);
+        String[] parts = combined.asText.split(",", 2);
+        return new Message(parts[1].trim());
+    }
+
+    // Run one hop kind the given number of times and print its allocation and throughput
+    private static void measure(String name, int hops, Runnable hop, boolean print) {
+        long tid = Thread.currentThread().threadId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < hops; i++) {
+            hop.run();
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(tid) - bytesBefore;
+        if (print) {
+            System.out.printf("%-12s %14.1f %12.2f%n", name, (double) bytes / hops, hops / (nanos / 1e3));
+        }
+    }
+
+    // Measure the throughput of messages flowing through a real ParallelAgent
+    private static void pipeline() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(PIPELINE_MESSAGES);
+        ParallelAgent agent = new ParallelAgent(new Agent() {
+            public String getName() { return "bench"; }
+            public void reset() { }
+            public void callback(String topic, Message msg) { done.countDown(); }
+            public void close() { }
+        }, 1024);
+        Message msg = new Message(42.5);
+        long start = System.nanoTime();
+        for (int i = 0; i < PIPELINE_MESSAGES; i++) {
+            agent.callback("TOPIC", msg);
+        }
+        done.await(60, TimeUnit.SECONDS);
+        long nanos = System.nanoTime() - start;
+        agent.close();
+        System.out.printf("ParallelAgent end-to-end: %.2f M messages/s%n", PIPELINE_MESSAGES / (nanos / 1e3));
+    }
+}
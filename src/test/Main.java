@@ -3,6 +3,7 @@ package test;
 import server.HTTPServer;
 import server.MyHTTPServer;
 import servlets.ConfLoader;
+import servlets.EvaluateServlet;
 import servlets.HtmlLoader;
 import servlets.TopicDisplayer;
 
@@ -12,7 +13,10 @@ public class Main {
         HTTPServer server=new MyHTTPServer(8080,5); 
          
         server.addServlet("GET", "/publish", new TopicDisplayer()); 
-        server.addServlet("POST", "/upload", new ConfLoader()); 
+        ConfLoader confLoader = new ConfLoader();
+        server.addServlet("POST", "/upload", confLoader); 
+        server.addServlet("GET", "/agent-states", confLoader); 
+        server.addServlet("GET", "/evaluate", new EvaluateServlet(confLoader)); 
         server.addServlet("GET", "/app/", new HtmlLoader("html_files")); 
     
  
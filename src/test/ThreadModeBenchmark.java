@@ -0,0 +1,106 @@
+package test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import graph.Agent;
+import graph.Message;
+import graph.ParallelAgent;
+
+/**
+ * Compares the memory and hand-off cost of ParallelAgents running on platform threads
+ * against ParallelAgents running on virtual threads.
+ * The heap column does not include the native stacks of platform threads, the OS thread column shows them instead.
+ * Usage: java -cp bin test.ThreadModeBenchmark [agentCount ...] (default: 1000 10000 100000)
+ */
+public class ThreadModeBenchmark {
+    private static final int MESSAGES_PER_AGENT = 10; // Messages sent to every agent
+    private static final long TIMEOUT_SECONDS = 120; // Maximum time to wait for all messages to be handled
+
+    public static void main(String[] args) throws Exception {
+        int[] counts = {1_000, 10_000, 100_000};
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%-9s %8s %12s %14s %10s %14s%n", "threads", "agents", "create ms", "heap KB/agent", "OS threads", "ns/hand-off");
+        for (int count : counts) {
+            run(count, false);
+            run(count, true);
+        }
+        System.exit(0);
+    }
+
+    // Run the benchmark for one agent count and one thread kind
+    private static void run(int count, boolean virtual) throws InterruptedException {
+        String kind = virtual ? "virtual" : "platform";
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        CountDownLatch done = new CountDownLatch(count * MESSAGES_PER_AGENT);
+        List<ParallelAgent> agents = new ArrayList<>(count);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                agents.add(new ParallelAgent(new CountingAgent("bench" + i, done), 1, virtual));
+            }
+            long createNanos = System.nanoTime() - start;
+            long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+            int osThreads = threads.getThreadCount(); // Virtual threads are not counted here
+
+            Message msg = new Message(1.0);
+            start = System.nanoTime();
+            for (int m = 0; m < MESSAGES_PER_AGENT; m++) {
+                for (ParallelAgent agent : agents) {
+                    agent.callback("BENCH", msg);
+                }
+            }
+            boolean finished = done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            long handOffNanos = System.nanoTime() - start;
+
+            System.out.printf("%-9s %8d %12.1f %14.2f %10d %14s%n", kind, count,
+                createNanos / 1e6,
+                (heapAfter - heapBefore) / 1024.0 / count,
+                osThreads,
+                finished ? String.format("%.0f", (double) handOffNanos / ((long) count * MESSAGES_PER_AGENT)) : "timeout");
+        } catch (OutOfMemoryError | InternalError e) { // Not enough memory (or OS limits) for this many threads
+            System.out.printf("%-9s %8d failed after %d agents: %s%n", kind, count, agents.size(), e);
+        } finally {
+            for (ParallelAgent agent : agents) {
+                agent.close();
+            }
+        }
+    }
+
+    // An agent that only counts the messages it receives
+    private static final class CountingAgent implements Agent {
+        private final String name;
+        private final CountDownLatch done;
+
+        CountingAgent(String name, CountDownLatch done) {
+            this.name = name;
+            this.done = done;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public void reset() { }
+
+        @Override
+        public void callback(String topic, Message msg) { done.countDown(); }
+
+        @Override
+        public void close() { }
+    }
+}
@@ -0,0 +1,47 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import graph.TimingWheel;
+
+/**
+ * Measures how many periodic timers one timing wheel thread keeps on time.
+ * Schedules the timers with random phases, lets them run, and reports the firings per second,
+ * the lateness of the firings, and the time to schedule and cancel a timer.
+ * Usage: java -cp bin test.TimerBenchmark [timers] [periodMillis] [seconds] (default: 100000 100 5)
+ */
+public class TimerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long period = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        TimingWheel wheel = new TimingWheel();
+        LongAdder fired = new LongAdder();
+        List<TimingWheel.Timer> scheduled = new ArrayList<>(timers);
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            scheduled.add(wheel.scheduleAtFixedRate(fired::increment, 1 + i % period, period));
+        }
+        long scheduleNanos = System.nanoTime() - start;
+
+        Thread.sleep(seconds * 1000L);
+        long firings = fired.sum();
+
+        start = System.nanoTime();
+        for (TimingWheel.Timer timer : scheduled) {
+            timer.cancel();
+        }
+        long cancelNanos = System.nanoTime() - start;
+
+        System.out.printf("%d timers every %d ms for %d s on one thread%n", timers, period, seconds);
+        System.out.printf("%.0f firings/s (expected %.0f)%n", firings / (double) seconds, timers * 1000.0 / period);
+        System.out.printf("lateness: %s%n", wheel.getLateness());
+        System.out.printf("schedule: %.0f ns/timer, cancel: %.0f ns/timer%n",
+            scheduleNanos / (double) timers, cancelNanos / (double) timers);
+        wheel.close();
+        System.exit(0);
+    }
+}